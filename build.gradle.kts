@@ -2,6 +2,7 @@ plugins {
     id("com.github.johnrengelman.shadow") version "8.1.1"
     id("io.micronaut.application") version "4.4.4"
     id("io.micronaut.aot") version "4.4.4"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 version = "0.1"
@@ -14,12 +15,25 @@ repositories {
 dependencies {
     annotationProcessor("io.micronaut:micronaut-http-validation")
     annotationProcessor("io.micronaut.serde:micronaut-serde-processor")
+    annotationProcessor(project(":transformer-processor"))
     implementation("io.micronaut:micronaut-jackson-databind")
+    implementation("io.micronaut:micronaut-management")
+    implementation("io.micronaut.micrometer:micronaut-micrometer-core")
+    implementation("io.micronaut.micrometer:micronaut-micrometer-registry-prometheus")
+    implementation("io.micronaut.reactor:micronaut-reactor")
     implementation("com.google.code.gson:gson:2.11.0")
+    implementation("com.github.ben-manes.caffeine:caffeine:3.1.8")
+    implementation("org.hdrhistogram:HdrHistogram:2.2.2")
+    implementation("org.ow2.asm:asm:9.7.1")
     implementation("io.micronaut.serde:micronaut-serde-jackson")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile")
+    implementation("org.msgpack:jackson-dataformat-msgpack:0.9.8")
     compileOnly("io.micronaut:micronaut-http-client")
     runtimeOnly("ch.qos.logback:logback-classic")
     testImplementation("io.micronaut:micronaut-http-client")
+    jmhAnnotationProcessor(platform("io.micronaut.platform:micronaut-platform:${project.properties["micronautVersion"]}"))
+    jmhAnnotationProcessor("io.micronaut:micronaut-inject-java")
 }
 
 
@@ -54,6 +68,41 @@ micronaut {
 }
 
 
+jmh {
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+    benchmarkMode = listOf("thrpt", "avgt")
+    timeUnit = "us"
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+    (project.findProperty("jmhIncludes") as String?)?.let { includes = listOf(it) }
+}
+
+// AppCDS archive of the shadow jar, dumped by a training run that starts the application, warms it up and exits.
+// The training run uses the Java 21 toolchain, not the JVM running Gradle, which may be older than the classes.
+// Run the jar with -XX:SharedArchiveFile=build/libs/micronaut-nimbus.jsa on that same Java 21 JDK.
+val cdsArchive = layout.buildDirectory.file("libs/micronaut-nimbus.jsa")
+tasks.register<Exec>("cdsArchive") {
+    group = "build"
+    description = "Trains an AppCDS archive for the shadow jar"
+    val shadowJar = tasks.named<Jar>("shadowJar")
+    val launcher = javaToolchains.launcherFor { languageVersion = JavaLanguageVersion.of(21) }
+    dependsOn(shadowJar)
+    inputs.file(shadowJar.flatMap { it.archiveFile })
+    outputs.file(cdsArchive)
+    doFirst {
+        commandLine(
+            launcher.get().executablePath.asFile,
+            "-XX:ArchiveClassesAtExit=${cdsArchive.get().asFile}",
+            "-Dmicronaut.server.port=-1",
+            "-Dnimbus.warmup.enabled=true",
+            "-Dnimbus.warmup.exit-when-done=true",
+            "-jar", shadowJar.get().archiveFile.get().asFile
+        )
+    }
+}
+
 tasks.named<io.micronaut.gradle.docker.NativeImageDockerfile>("dockerfileNative") {
     jdkVersion = "21"
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+#!/usr/bin/env bash
+# Shows the effect of admission control on the latency of /transformer/transform under overload.
+#
+# The application is started twice, with and without admission control. Each run sends REQUESTS transforms at
+# NORMAL concurrency, then at OVERLOAD concurrency, while a /transformer/benchmark runs in the background. Every
+# phase prints the count of each status and the p50/p99 latency of the successful transforms, so the two runs can
+# be compared on the same machine.
+#
+# Usage: scripts/admission-load-test.sh
+#   REQUESTS=5000 NORMAL=4 OVERLOAD=256 PORT=8080 ENGINE=jackson SKIP_BUILD=1 scripts/admission-load-test.sh
+set -euo pipefail
+
+REQUESTS=${REQUESTS:-5000}
+NORMAL=${NORMAL:-4}
+OVERLOAD=${OVERLOAD:-256}
+PORT=${PORT:-8080}
+ENGINE=${ENGINE:-jackson}
+JAR=${JAR:-build/libs/micronaut-nimbus-0.1-all.jar}
+BASE="http://localhost:${PORT}/transformer"
+PAYLOAD='{"userId":"user_12345","name":"john doe","email":"John.Doe@Example.COM",
+"homeAddress":{"street":"123 Main Street","city":"Hometown","zipCode":"12345"},"officeAddress":null,
+"orders":{"orderId":"order_001","items":{"name":"Laptop","quantity":1,"price":1200.50},"totalAmount":1252.48}}'
+
+cd "$(dirname "$0")/.."
+
+if [[ -z "${SKIP_BUILD:-}" ]]; then
+  ./gradlew --quiet shadowJar
+fi
+
+transform() {
+  curl -s -o /dev/null -w '%{http_code} %{time_total}\n' -H 'Content-Type: application/json' -d "$PAYLOAD" \
+    "${BASE}/transform?engine=${ENGINE}" || echo "000 0"
+}
+export -f transform
+export PAYLOAD BASE ENGINE
+
+# Prints "status=count ..." and the p50/p99 of the 200 responses in milliseconds
+summarize() {
+  sort -k2 -n | awk '
+    function percentile(p) { i = int(n * p); return ok[i < 1 ? 1 : i] }
+    { count[$1]++; if ($1 == 200) { ok[++n] = $2 * 1000 } }
+    END {
+      for (status in count) { printf "%s=%d ", status, count[status] }
+      if (n > 0) { printf "p50=%.1fms p99=%.1fms", percentile(0.5), percentile(0.99) }
+      printf "\n"
+    }'
+}
+
+phase() {
+  local label=$1 concurrency=$2
+  printf '%s concurrency=%d: ' "$label" "$concurrency"
+  seq 1 "$REQUESTS" | xargs -P "$concurrency" -I{} bash -c transform | summarize
+}
+
+run() {
+  local label=$1
+  shift
+  MICRONAUT_SERVER_PORT=$PORT java "$@" -jar "$JAR" > /dev/null 2>&1 &
+  local pid=$!
+  until [[ "$(transform | cut -d' ' -f1)" == 200 ]]; do
+    kill -0 "$pid" 2>/dev/null || { echo "$label: the application exited" >&2; exit 1; }
+    sleep 0.1
+  done
+  curl -s -o /dev/null -H 'Content-Type: application/json' -d "$PAYLOAD" \
+    "${BASE}/benchmark?warmupIterations=100000&iterations=1000000" &
+  local benchmark=$!
+
+  echo "== $label"
+  phase normal "$NORMAL"
+  phase overload "$OVERLOAD"
+
+  kill "$benchmark" 2>/dev/null || true
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+}
+
+run "admission control" -Dnimbus.admission.enabled=true
+run "no admission control" -Dnimbus.admission.enabled=false
@@ -0,0 +1,135 @@
+#!/usr/bin/env bash
+# Measures the startup, time-to-peak and steady-state RSS of the application in several modes.
+#
+# Every run starts the application and waits until /health/readiness reports it ready. It then posts a
+# UserExample to /transformer/transform REQUESTS times, one after the other, and reads the resident set size of
+# the process. Time to peak is the time from the start until a window of WINDOW consecutive transforms first
+# averages within PEAK_RATIO of the latency of the last fifth of the run.
+#
+# Modes:
+#   jvm         the fat jar
+#   cds         the fat jar with the AppCDS archive of the cdsArchive task
+#   warmup      the fat jar with the startup warm-up, ready once it is over
+#   cds-warmup  both
+#   native      the native binary
+#   both        jvm and native; all: every mode
+#
+# Usage: scripts/startup-benchmark.sh [mode...]
+#   RUNS=5 REQUESTS=2000 PORT=8080 ENGINE=introspection SKIP_BUILD=1 scripts/startup-benchmark.sh jvm cds warmup
+set -euo pipefail
+
+MODES=("${@:-both}")
+RUNS=${RUNS:-5}
+REQUESTS=${REQUESTS:-2000}
+WINDOW=${WINDOW:-50}
+PEAK_RATIO=${PEAK_RATIO:-1.25}
+PORT=${PORT:-8080}
+ENGINE=${ENGINE:-introspection}
+JAR=${JAR:-build/libs/micronaut-nimbus-0.1-all.jar}
+ARCHIVE=${ARCHIVE:-build/libs/micronaut-nimbus.jsa}
+BINARY=${BINARY:-build/native/nativeCompile/micronaut-nimbus}
+URL="http://localhost:${PORT}/transformer/transform?engine=${ENGINE}"
+READINESS="http://localhost:${PORT}/health/readiness"
+PAYLOAD='{"userId":"user_12345","name":"john doe","email":"John.Doe@Example.COM",
+"homeAddress":{"street":"123 Main Street","city":"Hometown","zipCode":"12345"},"officeAddress":null,
+"orders":{"orderId":"order_001","items":{"name":"Laptop","quantity":1,"price":1200.50},"totalAmount":1252.48}}'
+
+cd "$(dirname "$0")/.."
+
+if [[ " ${MODES[*]} " == *" both "* ]]; then
+  MODES=(jvm native)
+elif [[ " ${MODES[*]} " == *" all "* ]]; then
+  MODES=(jvm cds warmup cds-warmup native)
+fi
+
+if [[ -z "${SKIP_BUILD:-}" ]]; then
+  if [[ " ${MODES[*]} " == *" cds"* ]]; then
+    ./gradlew --quiet cdsArchive
+  elif [[ " ${MODES[*]} " != " native " ]]; then
+    ./gradlew --quiet shadowJar
+  fi
+  [[ " ${MODES[*]} " == *" native "* ]] && ./gradlew --quiet nativeCompile
+fi
+
+now_ms() {
+  echo $(( $(date +%s%N) / 1000000 ))
+}
+
+rss_kb() {
+  if [[ -r "/proc/$1/status" ]]; then
+    awk '/^VmRSS:/ { print $2 }' "/proc/$1/status"
+  else
+    ps -o rss= -p "$1" | tr -d ' '
+  fi
+}
+
+transform() {
+  curl -s -o /dev/null -w '%{http_code} %{time_total}' -H 'Content-Type: application/json' -d "$PAYLOAD" "$URL" \
+    || echo "000 0"
+}
+
+median() {
+  sort -n | awk '{ values[NR] = $1 } END { print (NR % 2) ? values[(NR + 1) / 2] : (values[NR / 2] + values[NR / 2 + 1]) / 2 }'
+}
+
+# Reads "completed_at_ms latency_ms" lines and prints the time to peak in milliseconds
+time_to_peak() {
+  awk -v window="$WINDOW" -v ratio="$PEAK_RATIO" '
+    { at[NR] = $1; latency[NR] = $2 }
+    END {
+      tail = int(NR / 5); if (tail < 1) tail = 1
+      for (i = NR - tail + 1; i <= NR; i++) steady += latency[i]
+      steady /= tail
+      sum = 0
+      for (i = 1; i <= NR; i++) {
+        sum += latency[i]
+        if (i > window) sum -= latency[i - window]
+        if (i >= window && sum / window <= steady * ratio) { print at[i - window + 1]; exit }
+      }
+      print at[NR]
+    }'
+}
+
+measure() {
+  local mode=$1
+  shift
+  local ready=() first=() peak=() rss=()
+  for run in $(seq 1 "$RUNS"); do
+    local start latencies
+    start=$(now_ms)
+    MICRONAUT_SERVER_PORT=$PORT "$@" > /dev/null 2>&1 &
+    local pid=$!
+    until [[ "$(curl -s -o /dev/null -w '%{http_code}' "$READINESS" || true)" == 200 ]]; do
+      kill -0 "$pid" 2>/dev/null || { echo "$mode run $run: the application exited" >&2; exit 1; }
+      sleep 0.01
+    done
+    ready+=($(( $(now_ms) - start )))
+
+    latencies=$(for _ in $(seq 1 "$REQUESTS"); do
+      read -r status seconds <<< "$(transform)"
+      [[ "$status" == 200 ]] || { echo "$mode run $run: transform returned $status" >&2; exit 1; }
+      echo "$(( $(now_ms) - start )) $(awk -v s="$seconds" 'BEGIN { print s * 1000 }')"
+    done)
+    first+=("$(head -n 1 <<< "$latencies" | cut -d' ' -f2)")
+    peak+=("$(time_to_peak <<< "$latencies")")
+    rss+=("$(rss_kb "$pid")")
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo "$mode,$run,${ready[-1]},${first[-1]},${peak[-1]},${rss[-1]}"
+  done
+  echo "$mode,median,$(printf '%s\n' "${ready[@]}" | median),$(printf '%s\n' "${first[@]}" | median),$(printf '%s\n' "${peak[@]}" | median),$(printf '%s\n' "${rss[@]}" | median)"
+}
+
+echo "mode,run,time_to_ready_ms,first_transform_ms,time_to_peak_ms,steady_state_rss_kb"
+for mode in "${MODES[@]}"; do
+  case $mode in
+    jvm) measure jvm java -jar "$JAR" ;;
+    cds) measure cds java -XX:SharedArchiveFile="$ARCHIVE" -jar "$JAR" ;;
+    warmup) measure warmup java -Dnimbus.warmup.enabled=true -jar "$JAR" ;;
+    cds-warmup) measure cds-warmup java -XX:SharedArchiveFile="$ARCHIVE" -Dnimbus.warmup.enabled=true -jar "$JAR" ;;
+    native) measure native "$BINARY" ;;
+    *) echo "Unknown mode $mode" >&2; exit 1 ;;
+  esac
+done
+exit 0
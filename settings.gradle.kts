@@ -1 +1,2 @@
-rootProject.name="micronaut-nimbus"
\ No newline at end of file
+rootProject.name="micronaut-nimbus"
+include("transformer-processor")
\ No newline at end of file
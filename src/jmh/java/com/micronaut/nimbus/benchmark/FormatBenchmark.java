@@ -0,0 +1,88 @@
+package com.micronaut.nimbus.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.micronaut.nimbus.engine.JsonTransformer;
+import com.micronaut.nimbus.engine.StreamingJsonTransformer;
+import com.micronaut.nimbus.engine.WireFormat;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Compares the wire formats of {@code /transformer/transform}: {@link #decode} binds a request body,
+ * {@link #encode} writes the transformed document with the streaming engine, and {@link #roundTrip} does
+ * both, as the endpoint does. The request and response sizes of each format are reported as the
+ * {@code requestBytes} and {@code responseBytes} secondary results.
+ */
+@State(Scope.Benchmark)
+public class FormatBenchmark {
+
+    @Param({"JSON", "CBOR", "SMILE", "MESSAGE_PACK"})
+    private WireFormat format;
+
+    @Param({"1", "4"})
+    private int depth;
+
+    @Param({"4", "16"})
+    private int fieldCount;
+
+    @Param({"16", "256"})
+    private int stringLength;
+
+    @Param({"0", "100"})
+    private int collectionSize;
+
+    private final StreamingJsonTransformer transformer = new StreamingJsonTransformer(new JsonTransformer());
+    private Class<?> type;
+    private Object payload;
+    private byte[] body;
+    private ByteArrayOutputStream out;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sizes {
+        public long requestBytes;
+        public long responseBytes;
+    }
+
+    @Setup
+    public void setUp() throws IOException, IllegalAccessException {
+        payload = Payloads.create(depth, fieldCount, stringLength, collectionSize);
+        type = payload.getClass();
+        body = format.mapper().writeValueAsBytes(payload);
+        out = new ByteArrayOutputStream();
+        write(payload);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return format.mapper().readValue(body, type);
+    }
+
+    @Benchmark
+    public int encode() throws IOException, IllegalAccessException {
+        return write(payload);
+    }
+
+    @Benchmark
+    public int roundTrip(Sizes sizes) throws IOException, IllegalAccessException {
+        int written = write(format.mapper().readValue(body, type));
+        sizes.requestBytes = body.length;
+        sizes.responseBytes = written;
+        return written;
+    }
+
+    private int write(Object model) throws IOException, IllegalAccessException {
+        out.reset();
+        try (JsonGenerator generator = format.mapper().createGenerator(out)) {
+            transformer.write(model, generator);
+        }
+        return out.size();
+    }
+}
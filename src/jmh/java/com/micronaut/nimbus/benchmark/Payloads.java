@@ -0,0 +1,138 @@
+package com.micronaut.nimbus.benchmark;
+
+import com.micronaut.nimbus.annotations.JsonCleanPrefix;
+import com.micronaut.nimbus.annotations.JsonRename;
+import com.micronaut.nimbus.annotations.JsonToLower;
+import com.micronaut.nimbus.annotations.JsonToUpper;
+import io.micronaut.core.annotation.Introspected;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Synthetic payload models for the benchmarks. The string fields are defined once: {@link Strings} holds four,
+ * each carrying one annotation rule, and its {@link Extra} twelve more, set only for the wide (16 field)
+ * variant. Every nesting level is its own class holding the strings and the next level, so that payloads of
+ * any depth stay streamable; the root level also holds a list of {@link Item}s and an {@code int[]} of the same
+ * size.
+ * <p>
+ * The models are not run through the transformer processor, so the {@code jackson} engine resolves them
+ * with its reflective plan.
+ */
+public final class Payloads {
+
+    public static final int MAX_DEPTH = 4;
+
+    private Payloads() {
+    }
+
+    /**
+     * Builds a payload with {@code depth} nested levels, each holding {@code fieldCount} string fields of
+     * {@code stringLength} characters, and {@code collectionSize} items in the collections of the root.
+     */
+    public static Object create(int depth, int fieldCount, int stringLength, int collectionSize) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("depth must be between 1 and " + MAX_DEPTH + ": " + depth);
+        }
+        if (fieldCount != 4 && fieldCount != 16) {
+            throw new IllegalArgumentException("fieldCount must be 4 or 16: " + fieldCount);
+        }
+        return fill(Level1.class, depth, fieldCount == 16, stringLength, collectionSize);
+    }
+
+    private static Object fill(Class<?> type, int remaining, boolean wide, int stringLength, int collectionSize) {
+        try {
+            Object model = type.getDeclaredConstructor().newInstance();
+            for (Field field : type.getFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                Class<?> fieldType = field.getType();
+                if (fieldType == String.class) {
+                    field.set(model, value(stringLength));
+                } else if (fieldType == List.class) {
+                    field.set(model, items(collectionSize, stringLength));
+                } else if (fieldType == int[].class) {
+                    field.set(model, IntStream.range(0, collectionSize).toArray());
+                } else if (fieldType == Strings.class || fieldType == Extra.class && wide) {
+                    field.set(model, fill(fieldType, remaining, wide, stringLength, collectionSize));
+                } else if (fieldType != Extra.class && remaining > 1) {
+                    field.set(model, fill(fieldType, remaining - 1, wide, stringLength, collectionSize));
+                }
+            }
+            return model;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot build a payload of " + type.getName(), e);
+        }
+    }
+
+    private static List<Item> items(int size, int stringLength) {
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Item item = new Item();
+            item.id = value(stringLength);
+            item.quantity = i;
+            item.price = i * 1.5;
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static String value(int length) {
+        // Starts with the cleaned prefix and mixes case, so that every value rule has work to do
+        StringBuilder value = new StringBuilder(length).append("id_");
+        while (value.length() < length) {
+            value.append(value.length() % 3 == 0 ? 'A' : 'x');
+        }
+        return value.toString();
+    }
+
+    @Introspected(accessKind = Introspected.AccessKind.FIELD)
+    public static class Strings {
+        @JsonCleanPrefix(prefix = "id_") public String f0;
+        @JsonToUpper public String f1;
+        @JsonToLower public String f2;
+        @JsonRename(name = "renamed") public String f3;
+        public Extra extra;
+    }
+
+    @Introspected(accessKind = Introspected.AccessKind.FIELD)
+    public static class Extra {
+        public String f4, f5, f6, f7, f8, f9, f10, f11, f12, f13, f14, f15;
+    }
+
+    @Introspected(accessKind = Introspected.AccessKind.FIELD)
+    public static class Level1 {
+        public Strings strings;
+        public Level2 child;
+        public List<Item> items;
+        public int[] counts;
+    }
+
+    @Introspected(accessKind = Introspected.AccessKind.FIELD)
+    public static class Level2 {
+        public Strings strings;
+        public Level3 child;
+    }
+
+    @Introspected(accessKind = Introspected.AccessKind.FIELD)
+    public static class Level3 {
+        public Strings strings;
+        public Level4 child;
+    }
+
+    @Introspected(accessKind = Introspected.AccessKind.FIELD)
+    public static class Level4 {
+        public Strings strings;
+    }
+
+    @Introspected(accessKind = Introspected.AccessKind.FIELD)
+    public static class Item {
+        @JsonCleanPrefix(prefix = "id_") public String id;
+        public int quantity;
+        public double price;
+    }
+}
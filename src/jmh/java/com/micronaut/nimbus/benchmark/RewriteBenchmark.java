@@ -0,0 +1,63 @@
+package com.micronaut.nimbus.benchmark;
+
+import com.micronaut.nimbus.engine.JsonTransformer;
+import com.micronaut.nimbus.engine.StreamingJsonTransformer;
+import com.micronaut.nimbus.engine.TokenRewriteTransformer;
+import com.micronaut.nimbus.engine.TransformSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Measures the token rewrite engine, which starts from request bytes rather than a bound model. Compare
+ * {@link #rewrite} with {@link #bindAndWrite}, the path a bound request takes through the streaming engine.
+ */
+@State(Scope.Benchmark)
+public class RewriteBenchmark {
+
+    @Param({"1", "4"})
+    private int depth;
+
+    @Param({"4", "16"})
+    private int fieldCount;
+
+    @Param({"16", "256"})
+    private int stringLength;
+
+    @Param({"0", "100"})
+    private int collectionSize;
+
+    private final StreamingJsonTransformer streamingTransformer = new StreamingJsonTransformer(new JsonTransformer());
+    private final TokenRewriteTransformer rewriteTransformer = new TokenRewriteTransformer(streamingTransformer);
+    private Class<?> type;
+    private byte[] body;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() throws IOException, IllegalAccessException {
+        Object payload = Payloads.create(depth, fieldCount, stringLength, collectionSize);
+        type = payload.getClass();
+        body = TransformSupport.mapper().writeValueAsBytes(payload);
+        out = new ByteArrayOutputStream();
+        rewriteTransformer.transform(type, body, out);
+    }
+
+    @Benchmark
+    public int rewrite() throws IOException, IllegalAccessException {
+        out.reset();
+        rewriteTransformer.transform(type, body, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int bindAndWrite() throws IOException, IllegalAccessException {
+        out.reset();
+        streamingTransformer.transform(TransformSupport.mapper().readValue(body, type), out);
+        return out.size();
+    }
+}
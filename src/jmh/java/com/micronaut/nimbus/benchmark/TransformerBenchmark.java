@@ -0,0 +1,80 @@
+package com.micronaut.nimbus.benchmark;
+
+import com.micronaut.nimbus.engine.GsonJsonTransformer;
+import com.micronaut.nimbus.engine.IntrospectionTransformer;
+import com.micronaut.nimbus.engine.JsonTransformer;
+import com.micronaut.nimbus.engine.StreamingJsonTransformer;
+import com.micronaut.nimbus.engine.Transformer;
+import com.micronaut.nimbus.engine.TransformerRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compares the registered transformation engines on the same payloads. {@link #transform} measures building
+ * each engine's own document, {@link #write} measures producing the UTF-8 response body.
+ * <p>
+ * Run with {@code ./gradlew jmh}; modes, iterations and the gc profiler are configured in the build.
+ */
+@State(Scope.Benchmark)
+public class TransformerBenchmark {
+
+    @Param({"jackson", "gson", "streaming", "introspection"})
+    private String engine;
+
+    @Param({"1", "4"})
+    private int depth;
+
+    @Param({"4", "16"})
+    private int fieldCount;
+
+    @Param({"16", "256"})
+    private int stringLength;
+
+    @Param({"0", "100"})
+    private int collectionSize;
+
+    private Transformer transformer;
+    private Object payload;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() throws IOException, IllegalAccessException {
+        transformer = registry().get(engine);
+        payload = Payloads.create(depth, fieldCount, stringLength, collectionSize);
+        out = new ByteArrayOutputStream();
+        // Resolve plans and layouts before the first measured call
+        transformer.write(payload, out);
+    }
+
+    @Benchmark
+    public Object transform() throws IllegalAccessException {
+        return transformer.transform(payload);
+    }
+
+    @Benchmark
+    public int write() throws IOException, IllegalAccessException {
+        out.reset();
+        transformer.write(payload, out);
+        return out.size();
+    }
+
+    /**
+     * The engines as the application wires them; new engines are benchmarked once they are listed here and
+     * added to the {@code engine} parameter.
+     */
+    static TransformerRegistry registry() {
+        JsonTransformer jsonTransformer = new JsonTransformer();
+        return new TransformerRegistry(List.of(
+                jsonTransformer,
+                new GsonJsonTransformer(),
+                new StreamingJsonTransformer(jsonTransformer),
+                new IntrospectionTransformer()), "jackson");
+    }
+}
@@ -0,0 +1,75 @@
+package com.micronaut.nimbus.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.micronaut.nimbus.engine.FieldPlan;
+import com.micronaut.nimbus.engine.TransformPlan;
+import com.micronaut.nimbus.engine.TransformSupport;
+import com.micronaut.nimbus.engine.ValueTransforms;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compares the ways of writing a string value with its value rules. {@link #applyThenWrite} applies the rules to
+ * the {@code String} and writes the result, as the tree engines do; {@link #writeTransformed} applies them in
+ * the scratch buffer of {@link ValueTransforms} while writing, as the streaming and rewrite engines do. The
+ * rules are those of the {@code Payloads.Strings} field named by {@code field}; {@code ascii} switches the
+ * value to one with non-ASCII characters, which takes the Unicode fallback.
+ */
+@State(Scope.Benchmark)
+public class ValueRulesBenchmark {
+
+    /**
+     * {@code f0} has {@code @JsonCleanPrefix}, {@code f1} {@code @JsonToUpper}, {@code f2} {@code @JsonToLower}.
+     */
+    @Param({"f0", "f1", "f2"})
+    private String field;
+
+    @Param({"true", "false"})
+    private boolean ascii;
+
+    @Param({"16", "256"})
+    private int stringLength;
+
+    private FieldPlan plan;
+    private String value;
+    private JsonGenerator generator;
+    private final ValueTransforms transforms = new ValueTransforms();
+
+    @Setup
+    public void setUp() throws IOException, IllegalAccessException {
+        plan = TransformPlan.of(Payloads.Strings.class).fields().stream()
+                .filter(candidate -> candidate.name().equals(field))
+                .findFirst()
+                .orElseThrow();
+        StringBuilder builder = new StringBuilder("id_");
+        String letters = ascii ? "Value-" : "Wert-ß";
+        while (builder.length() < stringLength) {
+            builder.append(letters.charAt(builder.length() % letters.length()));
+        }
+        value = builder.toString();
+        generator = TransformSupport.mapper().createGenerator(OutputStream.nullOutputStream());
+        generator.writeStartArray();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        generator.close();
+    }
+
+    @Benchmark
+    public void applyThenWrite() throws IOException {
+        generator.writeString(plan.applyValueRules(value));
+    }
+
+    @Benchmark
+    public void writeTransformed() throws IOException {
+        transforms.writeString(generator, plan, value);
+    }
+}
@@ -1,10 +1,48 @@
 package com.micronaut.nimbus;
 
+import com.micronaut.nimbus.engine.Transformer;
+import com.micronaut.nimbus.engine.TransformerRegistry;
+import com.micronaut.nimbus.models.transformer.BulkTransformResult;
+import com.micronaut.nimbus.models.transformer.UserExample;
+import com.micronaut.nimbus.service.BulkTransformService;
+import io.micronaut.context.ApplicationContext;
 import io.micronaut.runtime.Micronaut;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 public class MicronautNimbus {
 
+    private static final String BULK_COMMAND = "bulk";
+
     public static void main(String[] args) {
+        if (args.length > 0 && BULK_COMMAND.equals(args[0])) {
+            System.exit(bulk(args));
+        }
         Micronaut.run(MicronautNimbus.class, args);
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs {@code bulk <input> <output> [engine]}: transforms an NDJSON file of {@code UserExample} records
+     * with {@link BulkTransformService} and exits, without starting the HTTP server.
+     */
+    private static int bulk(String[] args) {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Usage: " + BULK_COMMAND + " <input.ndjson> <output.ndjson> [engine]");
+            return 2;
+        }
+        try (ApplicationContext context = ApplicationContext.run()) {
+            Transformer transformer = context.getBean(TransformerRegistry.class)
+                    .getOrDefault(args.length == 4 ? args[3] : null);
+            BulkTransformResult result = context.getBean(BulkTransformService.class)
+                    .transform(UserExample.class, Path.of(args[1]), Path.of(args[2]), transformer);
+            System.out.printf("%d records (%d bytes) in %.3f s with %s: %.0f records/s, %.1f MB/s%n",
+                    result.getRecords(), result.getInputBytes(), result.getElapsedSeconds(), result.getEngine(),
+                    result.getRecordsPerSecond(), result.getBytesPerSecond() / 1_000_000);
+            return 0;
+        } catch (IOException | IllegalAccessException | IllegalArgumentException e) {
+            System.err.println("Bulk transform failed: " + e.getMessage());
+            return 1;
+        }
+    }
+}
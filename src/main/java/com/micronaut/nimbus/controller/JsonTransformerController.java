@@ -1,49 +1,238 @@
 package com.micronaut.nimbus.controller;
 
+import com.micronaut.nimbus.engine.OutputLayout;
+import com.micronaut.nimbus.engine.Transformer;
+import com.micronaut.nimbus.engine.WireFormat;
+import com.micronaut.nimbus.metrics.TransformMetrics;
 import com.micronaut.nimbus.models.transformer.AnalysisResult;
+import com.micronaut.nimbus.models.transformer.ScalingResult;
 import com.micronaut.nimbus.models.transformer.UserExample;
+import com.micronaut.nimbus.service.BatchTransformService;
 import com.micronaut.nimbus.service.JsonTransformerService;
+import com.micronaut.nimbus.service.ScalingBenchmarkService;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.io.Writable;
+import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.Body;
 import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
 import io.micronaut.http.annotation.Post;
+import io.micronaut.http.annotation.QueryValue;
+import io.micronaut.scheduling.TaskExecutors;
+import io.micronaut.scheduling.annotation.ExecuteOn;
 import io.micronaut.serde.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
 
+/**
+ * Endpoints run on virtual threads, so a request blocked on its body or on a transform holds no platform
+ * thread. The benchmarks run on the {@value #BENCHMARK_EXECUTOR} executor instead, a small pool of platform
+ * threads configured in {@code application.properties}: a benchmark keeps its thread busy for seconds, and
+ * on its own pool it can neither starve the carriers of the transform endpoints nor be measured on a
+ * virtual thread, whose allocations the thread MX bean does not report.
+ */
 @Controller("/transformer")
+@ExecuteOn(TaskExecutors.VIRTUAL)
 public class JsonTransformerController {
     private static final Logger log = LoggerFactory.getLogger(JsonTransformerController.class);
+    static final String BENCHMARK_EXECUTOR = "benchmark";
+    private static final String NDJSON = "application/x-ndjson";
     private final JsonTransformerService jsonTransformerService;
+    private final ScalingBenchmarkService scalingBenchmarkService;
+    private final BatchTransformService batchTransformService;
     private final ObjectMapper mapper;
+    private final TransformMetrics metrics;
 
-    public JsonTransformerController(JsonTransformerService jsonTransformerService, ObjectMapper mapper) {
+    public JsonTransformerController(JsonTransformerService jsonTransformerService,
+                                     ScalingBenchmarkService scalingBenchmarkService,
+                                     BatchTransformService batchTransformService,
+                                     ObjectMapper mapper,
+                                     TransformMetrics metrics) {
         this.jsonTransformerService = jsonTransformerService;
+        this.scalingBenchmarkService = scalingBenchmarkService;
+        this.batchTransformService = batchTransformService;
         this.mapper = mapper;
+        this.metrics = metrics;
     }
 
-    @Post("/transform")
-    public HttpResponse<String> transform(@Body UserExample input) {
+    /**
+     * Transforms a {@code UserExample}. The body is taken as raw bytes so that repeated payloads can be
+     * answered from the result cache before they are bound, and the output is written straight into a pooled
+     * buffer that Netty sends and releases.
+     * <p>
+     * The body may be in any {@link WireFormat}, as given by {@code Content-Type}; the route takes every media
+     * type so that the formats are only listed there. The response uses the first supported format in
+     * {@code Accept}, or the format of the body.
+     */
+    @Post(value = "/transform", consumes = MediaType.ALL, produces = MediaType.ALL)
+    public HttpResponse<?> transform(HttpRequest<?> request, @Body byte[] body, @Nullable @QueryValue String engine) {
+        WireFormat input = request.getContentType()
+                .map(type -> WireFormat.forMediaType(type.getName()))
+                .orElse(WireFormat.JSON);
+        if (input == null) {
+            return HttpResponse.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+        }
+        WireFormat output = responseFormat(request, input);
+        ByteBuf buffer;
+        try {
+            buffer = ResponseBuffers.write(out -> jsonTransformerService.jsonTransformerTransform(
+                    UserExample.class, body, engine, input, output, out));
+        } catch (IllegalArgumentException e) {
+            return HttpResponse.badRequest(e.getMessage());
+        } catch (IOException e) {
+            return HttpResponse.badRequest("Invalid UserExample payload: " + e.getMessage());
+        } catch (IllegalAccessException e) {
+            log.error("error has occured : {}", e.getMessage());
+            return HttpResponse.serverError("Internal Server Error");
+        }
+        return HttpResponse.ok(buffer).contentType(output.mediaType());
+    }
+
+    private static WireFormat responseFormat(HttpRequest<?> request, WireFormat input) {
+        for (MediaType accepted : request.accept()) {
+            WireFormat format = WireFormat.forMediaType(accepted.getName());
+            if (format != null) {
+                return format;
+            }
+        }
+        return input;
+    }
+
+    @Post("/transform/stream")
+    public HttpResponse<Writable> transformStream(@Body UserExample input, @Nullable @QueryValue String engine) {
+        Transformer transformer;
+        try {
+            transformer = jsonTransformerService.streamTransformer(engine);
+        } catch (IllegalArgumentException e) {
+            return HttpResponse.badRequest();
+        }
+        try {
+            OutputLayout.of(input.getClass());
+        } catch (IllegalAccessException e) {
+            log.error("error has occured : {}", e.getMessage());
+            metrics.recordError(transformer.id(), input.getClass(), e);
+            return HttpResponse.serverError();
+        }
+        return HttpResponse.ok(new Writable() {
+            @Override
+            public void writeTo(OutputStream outputStream, Charset charset) throws IOException {
+                try {
+                    jsonTransformerService.jsonTransformerStream(input, transformer, outputStream);
+                } catch (IllegalAccessException e) {
+                    throw new IOException(e);
+                }
+            }
+
+            @Override
+            public void writeTo(Writer out) throws IOException {
+                try {
+                    jsonTransformerService.jsonTransformerStream(input, transformer, out);
+                } catch (IllegalAccessException e) {
+                    throw new IOException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Rewrites a {@code UserExample} from the token stream of its body. The body is parsed chunk by chunk as
+     * it arrives rather than buffered in full, which is why this endpoint must run on a virtual thread: it
+     * waits for chunks that the event loop delivers.
+     */
+    @Post(value = "/transform/rewrite", consumes = MediaType.APPLICATION_JSON)
+    public HttpResponse<?> transformRewrite(@Body Publisher<byte[]> body) {
+        ByteBuf buffer;
         try {
-            Object result = jsonTransformerService.jsonTransformerTransform(input);
-            return HttpResponse.ok(result.toString());
+            buffer = ResponseBuffers.write(out -> jsonTransformerService.jsonTransformerRewrite(
+                    UserExample.class, body, out));
+        } catch (IOException e) {
+            return HttpResponse.badRequest("Invalid UserExample payload: " + e.getMessage());
         } catch (IllegalAccessException e) {
             log.error("error has occured : {}", e.getMessage());
             return HttpResponse.serverError("Internal Server Error");
         }
+        return HttpResponse.ok(buffer).contentType(MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Transforms a JSON array or newline-delimited JSON of {@code UserExample} records into NDJSON, one
+     * line per record in input order.
+     */
+    @Post(value = "/transform/batch", consumes = {MediaType.APPLICATION_JSON, NDJSON}, produces = NDJSON)
+    public HttpResponse<Publisher<byte[]>> transformBatch(@Body InputStream body, @Nullable @QueryValue String engine) {
+        Transformer transformer;
+        try {
+            transformer = jsonTransformerService.streamTransformer(engine);
+        } catch (IllegalArgumentException e) {
+            return HttpResponse.badRequest();
+        }
+        return HttpResponse.ok(batchTransformService.transform(UserExample.class, body, transformer));
+    }
+
+    @Get("/cache")
+    public HttpResponse<?> cacheStats() {
+        try {
+            return HttpResponse.ok(json(jsonTransformerService.cacheStats()));
+        } catch (IOException e) {
+            log.error("Object Mapper Loading failed");
+            return HttpResponse.serverError("Internal Server Error");
+        }
     }
 
     @Post("/benchmark")
-    public HttpResponse<String> benchmark(@Body UserExample input) {
+    @ExecuteOn(BENCHMARK_EXECUTOR)
+    public HttpResponse<?> benchmark(@Body UserExample input,
+                                     @Nullable @QueryValue Integer warmupIterations,
+                                     @Nullable @QueryValue Integer iterations) {
         try {
             log.info("Starting the benchmark");
-            AnalysisResult analysisResult = jsonTransformerService.performAnalysis(input);
-            return HttpResponse.ok(mapper.writeValueAsString(analysisResult));
+            AnalysisResult analysisResult = jsonTransformerService.performAnalysis(input,
+                    warmupIterations != null ? warmupIterations : JsonTransformerService.DEFAULT_WARMUP_ITERATIONS,
+                    iterations != null ? iterations : JsonTransformerService.DEFAULT_MEASUREMENT_ITERATIONS);
+            return HttpResponse.ok(json(analysisResult));
+        } catch (IllegalArgumentException e) {
+            return HttpResponse.badRequest(e.getMessage());
+        } catch (IOException e) {
+            log.error("Object Mapper Loading failed");
+            return HttpResponse.serverError("Internal Server Error");
+        }
+    }
+
+    @Post("/benchmark/scaling")
+    @ExecuteOn(BENCHMARK_EXECUTOR)
+    public HttpResponse<?> benchmarkScaling(@Body UserExample input,
+                                            @Nullable @QueryValue String engine,
+                                            @Nullable @QueryValue Integer maxThreads,
+                                            @Nullable @QueryValue Integer operations) {
+        try {
+            log.info("Starting the scaling benchmark");
+            ScalingResult scalingResult = scalingBenchmarkService.scale(input, engine,
+                    maxThreads != null ? maxThreads : ScalingBenchmarkService.defaultMaxThreads(),
+                    operations != null ? operations : ScalingBenchmarkService.DEFAULT_OPERATIONS_PER_THREAD);
+            return HttpResponse.ok(json(scalingResult));
+        } catch (IllegalArgumentException e) {
+            return HttpResponse.badRequest(e.getMessage());
         } catch (IOException e) {
             log.error("Object Mapper Loading failed");
             return HttpResponse.serverError("Internal Server Error");
         }
     }
+
+    /**
+     * Serializes a result as UTF-8 JSON into a pooled buffer, released by Netty once it is sent.
+     */
+    private ByteBuf json(Object value) throws IOException {
+        return ResponseBuffers.write(out -> mapper.writeValue(out, value));
+    }
 }
@@ -0,0 +1,40 @@
+package com.micronaut.nimbus.controller;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes response bodies into pooled buffers. A buffer handed to a response is released by Netty once it is
+ * sent; a buffer whose body fails to be written, with any exception, is released here before the exception
+ * is rethrown.
+ */
+final class ResponseBuffers {
+
+    /**
+     * Writes a body to the stream, which is closed afterwards.
+     *
+     * @param <E> the checked exception the body may fail with besides {@link IOException}
+     */
+    @FunctionalInterface
+    interface BodyWriter<E extends Exception> {
+        void write(OutputStream out) throws IOException, E;
+    }
+
+    private ResponseBuffers() {
+    }
+
+    static <E extends Exception> ByteBuf write(BodyWriter<E> writer) throws IOException, E {
+        ByteBuf buffer = ByteBufAllocator.DEFAULT.buffer();
+        try (ByteBufOutputStream out = new ByteBufOutputStream(buffer)) {
+            writer.write(out);
+        } catch (Throwable e) {
+            buffer.release();
+            throw e;
+        }
+        return buffer;
+    }
+}
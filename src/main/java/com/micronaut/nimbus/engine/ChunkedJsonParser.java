@@ -0,0 +1,190 @@
+package com.micronaut.nimbus.engine;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A parser over a request body that arrives as a stream of chunks. The chunks are fed to Jackson's
+ * non-blocking parser as they are consumed, so only the chunks not yet parsed are held in memory, never the
+ * whole body; at most {@code prefetch} of them are requested ahead of the parser.
+ * <p>
+ * Reading a token waits for the next chunk when the parser has run out of input. It is meant to be read on
+ * a virtual thread, which gives up its carrier while it waits; it must never be read on an event loop, which
+ * is the thread delivering the chunks.
+ */
+public final class ChunkedJsonParser extends JsonParserDelegate implements Subscriber<byte[]> {
+
+    private static final Object END = new Object();
+
+    private final ByteArrayFeeder feeder;
+    private final BlockingQueue<Object> chunks;
+    private final int prefetch;
+    private volatile Subscription subscription;
+    private boolean ended;
+
+    private ChunkedJsonParser(JsonParser parser, int prefetch) {
+        super(parser);
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        this.chunks = new ArrayBlockingQueue<>(prefetch + 1);
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Subscribes a new parser to the body.
+     *
+     * @throws IllegalArgumentException if {@code prefetch} is not positive
+     */
+    public static ChunkedJsonParser subscribe(Publisher<byte[]> body, int prefetch) throws IOException {
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch must be positive");
+        }
+        ChunkedJsonParser parser = new ChunkedJsonParser(
+                TransformSupport.mapper().getFactory().createNonBlockingByteArrayParser(), prefetch);
+        body.subscribe(parser);
+        return parser;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(prefetch);
+    }
+
+    @Override
+    public void onNext(byte[] chunk) {
+        chunks.offer(chunk);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        chunks.offer(error);
+    }
+
+    @Override
+    public void onComplete() {
+        chunks.offer(END);
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        JsonToken token;
+        while ((token = delegate.nextToken()) == JsonToken.NOT_AVAILABLE) {
+            feed();
+        }
+        return token;
+    }
+
+    /**
+     * Feeds the next non-empty chunk, or the end of input, to the parser.
+     */
+    private void feed() throws IOException {
+        while (true) {
+            Object chunk;
+            try {
+                chunk = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the request body");
+            }
+            if (chunk == END) {
+                ended = true;
+                feeder.endOfInput();
+                return;
+            }
+            if (chunk instanceof Throwable error) {
+                ended = true;
+                throw new IOException("The request body could not be read", error);
+            }
+            byte[] bytes = (byte[]) chunk;
+            subscription.request(1);
+            if (bytes.length > 0) {
+                feeder.feedInput(bytes, 0, bytes.length);
+                return;
+            }
+        }
+    }
+
+    // The methods below advance the parser; the delegate's versions would call its own nextToken and see
+    // NOT_AVAILABLE instead of waiting for the next chunk.
+
+    @Override
+    public JsonToken nextValue() throws IOException {
+        JsonToken token = nextToken();
+        return token == JsonToken.FIELD_NAME ? nextToken() : token;
+    }
+
+    @Override
+    public String nextFieldName() throws IOException {
+        return nextToken() == JsonToken.FIELD_NAME ? currentName() : null;
+    }
+
+    @Override
+    public boolean nextFieldName(SerializableString name) throws IOException {
+        return nextToken() == JsonToken.FIELD_NAME && name.getValue().equals(currentName());
+    }
+
+    @Override
+    public String nextTextValue() throws IOException {
+        return nextToken() == JsonToken.VALUE_STRING ? getText() : null;
+    }
+
+    @Override
+    public int nextIntValue(int defaultValue) throws IOException {
+        return nextToken() == JsonToken.VALUE_NUMBER_INT ? getIntValue() : defaultValue;
+    }
+
+    @Override
+    public long nextLongValue(long defaultValue) throws IOException {
+        return nextToken() == JsonToken.VALUE_NUMBER_INT ? getLongValue() : defaultValue;
+    }
+
+    @Override
+    public Boolean nextBooleanValue() throws IOException {
+        JsonToken token = nextToken();
+        return token == JsonToken.VALUE_TRUE ? Boolean.TRUE : token == JsonToken.VALUE_FALSE ? Boolean.FALSE : null;
+    }
+
+    @Override
+    public JsonParser skipChildren() throws IOException {
+        JsonToken current = currentToken();
+        if (current != JsonToken.START_OBJECT && current != JsonToken.START_ARRAY) {
+            return this;
+        }
+        int open = 1;
+        while (open > 0) {
+            JsonToken token = nextToken();
+            if (token == null) {
+                break;
+            }
+            if (token.isStructStart()) {
+                open++;
+            } else if (token.isStructEnd()) {
+                open--;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Closes the parser and cancels the rest of the body if it was not read to the end.
+     */
+    @Override
+    public void close() throws IOException {
+        Subscription subscription = this.subscription;
+        if (!ended && subscription != null) {
+            subscription.cancel();
+        }
+        super.close();
+    }
+}
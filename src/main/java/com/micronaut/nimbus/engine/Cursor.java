@@ -0,0 +1,42 @@
+package com.micronaut.nimbus.engine;
+
+import java.util.function.BiFunction;
+
+/**
+ * The output objects of one visited model, indexed by the nodes of its {@link PathTrie} and resolved on
+ * first use. The base object is resolved through the cursor of the enclosing model, so objects that end
+ * up empty are never created. {@code T} is the object type of the tree engine, created below its parent by
+ * {@code child}.
+ */
+final class Cursor<T> {
+
+    private final PathTrie trie;
+    private final Object[] nodes;
+    private final Cursor<T> outer;
+    private final int outerNode;
+    private final BiFunction<T, String, T> child;
+
+    Cursor(PathTrie trie, T root, Cursor<T> outer, int outerNode, BiFunction<T, String, T> child) {
+        this.trie = trie;
+        this.nodes = new Object[trie.size()];
+        this.outer = outer;
+        this.outerNode = outerNode;
+        this.child = child;
+        nodes[PathTrie.ROOT] = root;
+        if (outer == null) {
+            nodes[PathTrie.BASE] = root;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    T node(int index) {
+        T node = (T) nodes[index];
+        if (node == null) {
+            node = index == PathTrie.BASE
+                    ? outer.node(outerNode)
+                    : child.apply(node(trie.parent(index)), trie.key(index));
+            nodes[index] = node;
+        }
+        return node;
+    }
+}
@@ -0,0 +1,10 @@
+package com.micronaut.nimbus.engine;
+
+/**
+ * Reads one field of a model instance, resolved once per class by {@link TransformPlan}.
+ */
+@FunctionalInterface
+public interface FieldAccessor {
+
+    Object get(Object target);
+}
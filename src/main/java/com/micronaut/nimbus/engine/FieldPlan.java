@@ -0,0 +1,351 @@
+package com.micronaut.nimbus.engine;
+
+import com.micronaut.nimbus.annotations.JsonCleanPrefix;
+import com.micronaut.nimbus.annotations.JsonNestedTransform;
+import com.micronaut.nimbus.annotations.JsonRename;
+import com.micronaut.nimbus.annotations.JsonToLower;
+import com.micronaut.nimbus.annotations.JsonToUpper;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.function.UnaryOperator;
+
+/**
+ * The resolved transformation of a single field: where it goes in the output, which value rules apply
+ * to it and how its value is read.
+ * <p>
+ * {@code Optional} fields are unwrapped when read and planned as their value type. Collections, arrays and
+ * maps are written as JSON arrays and objects; their elements get the value rules of the field, and model
+ * elements are transformed as documents of their own.
+ */
+public final class FieldPlan {
+
+    public enum Kind {
+        /** Declared as a primitive, {@code String}, {@code Number} or {@code Boolean}. */
+        LEAF,
+        /** Declared as a model type, transformed with the plan of its runtime class. */
+        NESTED,
+        /** Declared as a supertype of the leaf types, such as {@code Object}, decided per value. */
+        DYNAMIC,
+        /** Declared as a {@code Collection} or an array of objects, written as a JSON array. */
+        COLLECTION,
+        /** Declared as an array of primitives, written as a JSON array without boxing its elements. */
+        PRIMITIVE_ARRAY,
+        /** Declared as a {@code Map}, written as a JSON object keyed by the string form of its keys. */
+        MAP
+    }
+
+    public enum CaseRule {
+        NONE, UPPER, LOWER
+    }
+
+    private final String name;
+    private final Class<?> type;
+    private final Class<?> elementType;
+    private final Type genericElementType;
+    private final boolean optional;
+    private final Kind kind;
+    private final String path;
+    private final String[] segments;
+    private final boolean absolute;
+    private final String prefix;
+    private final CaseRule caseRule;
+    private final UnaryOperator<String> valueRules;
+    private final String annotations;
+    private final FieldAccessor accessor;
+
+    FieldPlan(Field field, FieldAccessor accessor) {
+        this(field.getName(), field.getType(), field.getGenericType(),
+                field.isAnnotationPresent(JsonNestedTransform.class) ? field.getAnnotation(JsonNestedTransform.class).path() : null,
+                field.isAnnotationPresent(JsonRename.class) ? field.getAnnotation(JsonRename.class).name() : null,
+                field.isAnnotationPresent(JsonCleanPrefix.class) ? field.getAnnotation(JsonCleanPrefix.class).prefix() : null,
+                field.isAnnotationPresent(JsonToUpper.class) ? CaseRule.UPPER
+                        : field.isAnnotationPresent(JsonToLower.class) ? CaseRule.LOWER
+                        : CaseRule.NONE,
+                accessor);
+    }
+
+    /**
+     * Creates a plan from annotation values resolved elsewhere, such as from bean introspection metadata.
+     * {@code nestedPath}, {@code rename} and {@code prefix} are {@code null} when the annotation is absent;
+     * {@code genericType} resolves element types and may be the raw type.
+     */
+    FieldPlan(String name, Class<?> type, Type genericType, String nestedPath, String rename, String prefix,
+              CaseRule caseRule, FieldAccessor accessor) {
+        this.name = name;
+        this.optional = type == Optional.class;
+        if (optional) {
+            genericType = typeArgument(genericType, 0);
+            type = rawType(genericType);
+        }
+        this.type = type;
+        this.kind = kindOf(type);
+        this.genericElementType = switch (kind) {
+            case COLLECTION, PRIMITIVE_ARRAY, MAP -> elementTypeOf(genericType);
+            default -> null;
+        };
+        this.elementType = genericElementType == null ? null : rawType(genericElementType);
+        this.accessor = accessor;
+
+        String fieldPath = rename != null ? rename : nestedPath != null ? nestedPath : name;
+        this.path = fieldPath;
+        this.segments = fieldPath.split("\\.");
+        this.absolute = rename == null && nestedPath != null;
+        this.prefix = prefix;
+        this.caseRule = caseRule;
+        this.valueRules = hasValueRules() ? this::applyValueRules : UnaryOperator.identity();
+        this.annotations = annotationNames(nestedPath, rename, prefix, caseRule);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * The declared type of the field, or the value type of an {@code Optional} field.
+     */
+    public Class<?> type() {
+        return type;
+    }
+
+    /**
+     * The element type of a collection, array or map field as far as it is declared; {@code null} for
+     * other kinds.
+     */
+    public Class<?> elementType() {
+        return elementType;
+    }
+
+    /**
+     * The element type of a collection, array or map field with its type arguments, from which the element types
+     * of nested containers such as {@code List<List<Model>>} are resolved; {@code null} for other kinds.
+     */
+    Type genericElementType() {
+        return genericElementType;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    /**
+     * Whether the field is declared as an {@code Optional}, which {@link #read} unwraps.
+     */
+    boolean optional() {
+        return optional;
+    }
+
+    /**
+     * The output path as declared, relative to the enclosing object unless {@link #absolute()}.
+     */
+    public String path() {
+        return path;
+    }
+
+    /**
+     * The output path split on {@code '.'}; the last segment is the output key.
+     */
+    public String[] segments() {
+        return segments;
+    }
+
+    /**
+     * Whether the path comes from {@code @JsonNestedTransform} and is resolved from the document root.
+     */
+    public boolean absolute() {
+        return absolute;
+    }
+
+    public String key() {
+        return segments[segments.length - 1];
+    }
+
+    /**
+     * The simple names of the transform annotations on the field, comma separated, or {@code none}.
+     */
+    public String annotations() {
+        return annotations;
+    }
+
+    /**
+     * The prefix removed by {@code @JsonCleanPrefix}, or {@code null}.
+     */
+    String prefix() {
+        return prefix;
+    }
+
+    CaseRule caseRule() {
+        return caseRule;
+    }
+
+    public boolean hasValueRules() {
+        return prefix != null || caseRule != CaseRule.NONE;
+    }
+
+    /**
+     * Returns the full output path of this field below an object placed at {@code parent}.
+     */
+    public String[] resolve(String[] parent) {
+        if (absolute || parent.length == 0) {
+            return segments;
+        }
+        String[] resolved = Arrays.copyOf(parent, parent.length + segments.length);
+        System.arraycopy(segments, 0, resolved, parent.length, segments.length);
+        return resolved;
+    }
+
+    /**
+     * Whether the value read from this field is transformed as a nested model rather than written as a leaf.
+     */
+    public boolean isNested(Object value) {
+        return value != null && (kind == Kind.NESTED
+                || kind == Kind.DYNAMIC && !isLeafType(value.getClass()) && !isContainer(value));
+    }
+
+    /**
+     * Whether the value read from this field is written as a JSON array or object of elements.
+     */
+    public boolean isContainer(Object value) {
+        return value != null && kind != Kind.LEAF && kind != Kind.NESTED && isContainerValue(value);
+    }
+
+    /**
+     * Reads the value of this field from the target, unwrapping {@code Optional}s.
+     */
+    public Object read(Object target) {
+        Object value = accessor.get(target);
+        return optional && value != null ? ((Optional<?>) value).orElse(null) : value;
+    }
+
+    /**
+     * Applies {@code @JsonCleanPrefix}, {@code @JsonToUpper} and {@code @JsonToLower} to a string value.
+     */
+    public String applyValueRules(String value) {
+        if (prefix != null) {
+            value = TransformSupport.cleanPrefix(value, prefix);
+        }
+        return switch (caseRule) {
+            case UPPER -> TransformSupport.toUpperCase(value);
+            case LOWER -> TransformSupport.toLowerCase(value);
+            case NONE -> value;
+        };
+    }
+
+    /**
+     * The value rules as a function, for the string elements of collections and maps.
+     */
+    public UnaryOperator<String> valueRules() {
+        return valueRules;
+    }
+
+    /**
+     * Whether a value of the given runtime class is written as is rather than transformed as a model.
+     */
+    public static boolean isLeafType(Class<?> type) {
+        return type.isPrimitive() || type == String.class || Number.class.isAssignableFrom(type)
+                || type == Boolean.class || type == Character.class;
+    }
+
+    /**
+     * Whether a value is written element by element: a collection, an array, a map or an {@code Optional}.
+     */
+    public static boolean isContainerValue(Object value) {
+        return value instanceof Collection || value instanceof Map || value instanceof Optional
+                || value.getClass().isArray();
+    }
+
+    static Kind kindOf(Class<?> type) {
+        if (isLeafType(type)) {
+            return Kind.LEAF;
+        }
+        if (type.isArray()) {
+            return type.getComponentType().isPrimitive() ? Kind.PRIMITIVE_ARRAY : Kind.COLLECTION;
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return Kind.COLLECTION;
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return Kind.MAP;
+        }
+        if (type.isAssignableFrom(String.class) || type.isAssignableFrom(Integer.class)
+                || type.isAssignableFrom(Boolean.class)) {
+            return Kind.DYNAMIC;
+        }
+        return Kind.NESTED;
+    }
+
+    private static String annotationNames(String nestedPath, String rename, String prefix, CaseRule caseRule) {
+        StringJoiner names = new StringJoiner(",").setEmptyValue("none");
+        if (nestedPath != null) {
+            names.add(JsonNestedTransform.class.getSimpleName());
+        }
+        if (rename != null) {
+            names.add(JsonRename.class.getSimpleName());
+        }
+        if (prefix != null) {
+            names.add(JsonCleanPrefix.class.getSimpleName());
+        }
+        if (caseRule == CaseRule.UPPER) {
+            names.add(JsonToUpper.class.getSimpleName());
+        } else if (caseRule == CaseRule.LOWER) {
+            names.add(JsonToLower.class.getSimpleName());
+        }
+        return names.toString();
+    }
+
+    /**
+     * The type of the elements of a container of the given type: the component type of an array, the element
+     * type of a collection or the value type of a map, with their type arguments. {@code Object} when the
+     * container type does not declare it.
+     */
+    static Type elementTypeOf(Type containerType) {
+        if (containerType instanceof WildcardType wildcard) {
+            return elementTypeOf(wildcard.getUpperBounds()[0]);
+        }
+        if (containerType instanceof GenericArrayType array) {
+            return array.getGenericComponentType();
+        }
+        Class<?> raw = rawType(containerType);
+        if (raw.isArray()) {
+            return raw.getComponentType();
+        } else if (Collection.class.isAssignableFrom(raw)) {
+            return typeArgument(containerType, 0);
+        } else if (Map.class.isAssignableFrom(raw)) {
+            return typeArgument(containerType, 1);
+        }
+        return Object.class;
+    }
+
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType parameterized && parameterized.getActualTypeArguments().length > index) {
+            return parameterized.getActualTypeArguments()[index];
+        }
+        return Object.class;
+    }
+
+    static Class<?> rawType(Type type) {
+        if (type instanceof Class<?> raw) {
+            return raw;
+        } else if (type instanceof ParameterizedType parameterized) {
+            return rawType(parameterized.getRawType());
+        } else if (type instanceof GenericArrayType array) {
+            return rawType(array.getGenericComponentType()).arrayType();
+        } else if (type instanceof WildcardType wildcard) {
+            return rawType(wildcard.getUpperBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    @Override
+    public String toString() {
+        return "FieldPlan{" + name + " -> " + (absolute ? "/" : "") + path + ", " + kind + '}';
+    }
+}
@@ -0,0 +1,35 @@
+package com.micronaut.nimbus.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The handling of one field during a sampled transform: reading it, applying its value rules and writing it.
+ * The duration of a nested model field includes the fields of the nested model.
+ */
+@Name("com.micronaut.nimbus.FieldTransform")
+@Label("Field Transform")
+@Category({"Nimbus", "Transform"})
+@Description("Handling of one field in a sampled transform")
+@StackTrace(false)
+final class FieldTransformEvent extends jdk.jfr.Event {
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Model")
+    String model;
+
+    @Label("Field")
+    String field;
+
+    @Label("Annotations")
+    @Description("Transform annotations on the field")
+    String annotations;
+
+    @Label("Kind")
+    String kind;
+}
@@ -0,0 +1,20 @@
+package com.micronaut.nimbus.engine;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Transformer generated at build time by the {@code transformer-processor} module for a single model class.
+ * Implementations are registered through {@code META-INF/services} and looked up by {@link GeneratedTransformers}.
+ *
+ * @param <T> the model type
+ */
+public interface GeneratedTransformer<T> {
+
+    Class<T> type();
+
+    /**
+     * @throws IllegalAccessException if a model held in a collection or map field has no generated
+     *                                transformer and its fields cannot be read
+     */
+    ObjectNode transform(T input) throws IllegalAccessException;
+}
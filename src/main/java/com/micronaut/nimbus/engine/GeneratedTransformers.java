@@ -0,0 +1,35 @@
+package com.micronaut.nimbus.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the build-time generated transformers found on the classpath.
+ */
+public final class GeneratedTransformers {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneratedTransformers.class);
+    private static final Map<Class<?>, GeneratedTransformer<?>> TRANSFORMERS = load();
+
+    private GeneratedTransformers() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> GeneratedTransformer<T> find(Class<T> type) {
+        return (GeneratedTransformer<T>) TRANSFORMERS.get(type);
+    }
+
+    private static Map<Class<?>, GeneratedTransformer<?>> load() {
+        Map<Class<?>, GeneratedTransformer<?>> transformers = new HashMap<>();
+        for (GeneratedTransformer<?> transformer : ServiceLoader.load(GeneratedTransformer.class,
+                GeneratedTransformer.class.getClassLoader())) {
+            transformers.put(transformer.type(), transformer);
+        }
+        log.debug("Loaded {} generated transformers", transformers.size());
+        return transformers;
+    }
+}
@@ -1,105 +1,211 @@
 package com.micronaut.nimbus.engine;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
-import com.micronaut.nimbus.annotations.JsonCleanPrefix;
-import com.micronaut.nimbus.annotations.JsonNestedTransform;
-import com.micronaut.nimbus.annotations.JsonToLower;
-import com.micronaut.nimbus.annotations.JsonToUpper;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
 import jakarta.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
 
+/**
+ * Gson engine. {@link #write} streams the document of each model class through the cached adapter of
+ * {@link GsonModelAdapterFactory}; {@link #transform} builds a Gson {@code JsonObject}, which is also written
+ * for sampled transforms so that their fields can be timed.
+ */
 @Singleton
-public class GsonJsonTransformer {
+public class GsonJsonTransformer implements Transformer {
 
     private static final Logger log = LoggerFactory.getLogger(GsonJsonTransformer.class);
-    private static final Gson gson = new Gson();
 
+    private final GsonModelAdapterFactory adapters = new GsonModelAdapterFactory(this);
+    private final Gson gson = new GsonBuilder().registerTypeAdapterFactory(adapters).create();
+
+    @Override
+    public String id() {
+        return "gson";
+    }
+
+    /**
+     * The Gson instance the engine writes with, which writes models as their transformed documents.
+     */
+    public Gson gson() {
+        return gson;
+    }
+
+    @Override
     public JsonObject transform(Object input) throws IllegalAccessException {
-        JsonObject result = new JsonObject();
-        JsonObject parentNode = new JsonObject();
-        processFields(result, input, parentNode, "");
+        return transform(input, TransformProfiler.sample());
+    }
+
+    private JsonObject transform(Object input, boolean sampled) throws IllegalAccessException {
+        TransformEvent event = TransformProfiler.beginTransform();
+        JsonObject result = model(input, sampled);
         log.debug("Final Transformation Result: {}", result);
+        TransformProfiler.endTransform(event, id(), input.getClass(), sampled);
         return result;
     }
 
-    private void processFields(JsonObject resultNode, Object input, JsonObject parentNode, String parentPath)
-            throws IllegalAccessException {
-        Class<?> clazz = input.getClass();
-        for (Field field : clazz.getDeclaredFields()) {
-            field.setAccessible(true);
-            Object value = field.get(input);
-            log.debug("Processing Field: {} with Value: {}", field.getName(), value);
-            // Determine the target field name or path
-            String fieldPath = (field.isAnnotationPresent(JsonNestedTransform.class))
-                    ? field.getAnnotation(JsonNestedTransform.class).path()
-                    : parentPath.isEmpty() ? field.getName() : parentPath + '.' + field.getName();
-
-            // Apply @JsonCleanPrefix to remove prefixes
-            if (field.isAnnotationPresent(JsonCleanPrefix.class)) {
-                String prefix = field.getAnnotation(JsonCleanPrefix.class).prefix();
-                fieldPath = parentPath.equals("") ? cleanPrefix(field.getName(), prefix) : parentPath + "." + cleanPrefix(field.getName(), prefix);
-                log.debug("Cleaned Field Name: {}", fieldPath);
-            }
+    /**
+     * Builds the document of a model, the whole input or an element of one of its containers, which is part of
+     * the transform of the input and records no transform of its own.
+     */
+    private JsonObject model(Object input, boolean sampled) throws IllegalAccessException {
+        JsonObject result = new JsonObject();
+        processFields(input, result, null, PathTrie.BASE, sampled);
+        return result;
+    }
 
-            // Apply string transformations
-            if (value instanceof String stringValue) {
-                if (field.isAnnotationPresent(JsonToUpper.class)) {
-                    value = stringValue.toUpperCase();
-                    log.debug("Transformed to Uppercase: {} -> {}", fieldPath, value);
-                } else if (field.isAnnotationPresent(JsonToLower.class)) {
-                    value = stringValue.toLowerCase();
-                    log.debug("Transformed to Lowercase: {} -> {}", fieldPath, value);
-                }
+    @Override
+    public void write(Object input, OutputStream out) throws IOException, IllegalAccessException {
+        // A JsonWriter of its own, as those of Gson.toJson drop the null members of the document
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (TransformProfiler.sample()) {
+            gson.getAdapter(JsonElement.class).write(writer, transform(input, true));
+        } else {
+            TransformEvent event = TransformProfiler.beginTransform();
+            try {
+                // Not through gson.getAdapter, whose cache would keep every model class it has seen
+                adapters.adapter(input.getClass()).write(writer, input);
+            } catch (PlanResolutionException e) {
+                throw e.getCause();
             }
+            TransformProfiler.endTransform(event, id(), input.getClass(), false);
+        }
+        writer.flush();
+    }
+
+    private void processFields(Object input, JsonObject root, Cursor<JsonObject> outer, int outerNode,
+                               boolean sampled) throws IllegalAccessException {
+        TransformPlan plan = TransformPlan.of(input.getClass());
+        PathTrie trie = plan.trie();
+        Cursor<JsonObject> cursor = new Cursor<>(trie, root, outer, outerNode, GsonJsonTransformer::child);
+        List<FieldPlan> fields = plan.fields();
+        for (int i = 0; i < fields.size(); i++) {
+            FieldPlan field = fields.get(i);
+            FieldTransformEvent event = sampled ? TransformProfiler.beginField() : null;
+            Object value = field.read(input);
 
-            log.debug("--> {} ==> {} =:{}", fieldPath, parentPath.isEmpty() ? "root" : parentPath, value);
+            // Apply @JsonCleanPrefix, @JsonToUpper and @JsonToLower
+            if (value instanceof String stringValue && field.hasValueRules()) {
+                value = field.applyValueRules(stringValue);
+            }
 
-            // Process nested objects recursively
-            if (value != null && !isPrimitiveOrWrapper(value.getClass())) {
-                JsonObject childNode = new JsonObject();
-                processFields(resultNode, value, childNode, fieldPath);
-                parentNode.add(fieldPath, childNode);
+            // Process nested objects recursively, into the object at the field's own path
+            if (field.isNested(value)) {
+                processFields(value, root, cursor, trie.fieldTarget(i), sampled);
+            } else if (field.isContainer(value)) {
+                cursor.node(trie.fieldParent(i)).add(field.key(), element(value, field.valueRules(), sampled));
             } else {
                 // Add the field value to the parent node
-                setFieldValueInNode(resultNode, parentNode, fieldPath, value);
+                setFieldValueInNode(cursor.node(trie.fieldParent(i)), field.key(), value);
             }
-        }
-    }
-
-    private void setFieldValueInNode(JsonObject resultNode, JsonObject parentNode, String path, Object value) {
-        log.debug("Setting Field Value {} : {} : {}", parentNode, path, value);
-        String[] pathSegments = path.split("\\.");
-        JsonObject currentNode = resultNode;
 
-        for (int i = 0; i < pathSegments.length - 1; i++) {
-            String segment = pathSegments[i];
-            if (!currentNode.has(segment)) {
-                currentNode.add(segment, new JsonObject());
+            if (event != null) {
+                TransformProfiler.endField(event, id(), plan.type(), field);
             }
-            currentNode = currentNode.getAsJsonObject(segment);
         }
+    }
 
-        if (value instanceof Number) {
-            currentNode.addProperty(pathSegments[pathSegments.length - 1], (Number) value);
+    /**
+     * Adds a leaf value with the JSON type {@link TransformSupport#putValue} would give it.
+     */
+    private void setFieldValueInNode(JsonObject currentNode, String key, Object value) {
+        if (value == null) {
+            currentNode.add(key, JsonNull.INSTANCE);
+        } else if (value instanceof Number) {
+            currentNode.addProperty(key, (Number) value);
         } else if (value instanceof Boolean) {
-            currentNode.addProperty(pathSegments[pathSegments.length - 1], (Boolean) value);
-        } else if (value instanceof String) {
-            currentNode.addProperty(pathSegments[pathSegments.length - 1], (String) value);
+            currentNode.addProperty(key, (Boolean) value);
         } else {
-            currentNode.add(pathSegments[pathSegments.length - 1], gson.toJsonTree(value));
+            currentNode.addProperty(key, value.toString());
         }
     }
 
-    private boolean isPrimitiveOrWrapper(Class<?> type) {
-        return type.isPrimitive() || type == String.class || Number.class.isAssignableFrom(type)
-                || Boolean.class.isAssignableFrom(type);
+    /**
+     * Builds the element tree of a collection, array, map or {@code Optional} value, the Gson counterpart of
+     * {@link TransformSupport#valueNode}. Gson's tree only holds boxed numbers, so primitive array elements
+     * are boxed one at a time as they are added.
+     */
+    private JsonElement element(Object value, UnaryOperator<String> rules, boolean sampled)
+            throws IllegalAccessException {
+        if (value == null) {
+            return JsonNull.INSTANCE;
+        } else if (value instanceof String string) {
+            return new JsonPrimitive(rules.apply(string));
+        } else if (value instanceof Optional<?> optional) {
+            return element(optional.orElse(null), rules, sampled);
+        } else if (value instanceof Collection<?> collection) {
+            JsonArray array = new JsonArray(collection.size());
+            if (ParallelTransforms.forks(collection.size())) {
+                ParallelTransforms.transformAll(collection.toArray(), item -> element(item, rules, sampled))
+                        .forEach(array::add);
+                return array;
+            }
+            for (Object item : collection) {
+                array.add(element(item, rules, sampled));
+            }
+            return array;
+        } else if (value instanceof Object[] items && ParallelTransforms.forks(items.length)) {
+            JsonArray array = new JsonArray(items.length);
+            ParallelTransforms.transformAll(items, item -> element(item, rules, sampled)).forEach(array::add);
+            return array;
+        } else if (value instanceof Map<?, ?> map) {
+            JsonObject object = new JsonObject();
+            if (ParallelTransforms.forks(map.size())) {
+                Map.Entry<?, ?>[] entries = map.entrySet().toArray(new Map.Entry<?, ?>[0]);
+                List<JsonElement> values = ParallelTransforms.transformAll(entries,
+                        entry -> element(((Map.Entry<?, ?>) entry).getValue(), rules, sampled));
+                for (int i = 0; i < entries.length; i++) {
+                    object.add(String.valueOf(entries[i].getKey()), values.get(i));
+                }
+                return object;
+            }
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                object.add(String.valueOf(entry.getKey()), element(entry.getValue(), rules, sampled));
+            }
+            return object;
+        } else if (value instanceof char[] chars) {
+            return new JsonPrimitive(new String(chars));
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            JsonArray array = new JsonArray(length);
+            for (int i = 0; i < length; i++) {
+                array.add(element(Array.get(value, i), rules, sampled));
+            }
+            return array;
+        } else if (value instanceof Number number) {
+            return new JsonPrimitive(value instanceof Byte ? (Number) number.intValue() : number);
+        } else if (value instanceof Boolean bool) {
+            return new JsonPrimitive(bool);
+        } else if (value instanceof Character character) {
+            return new JsonPrimitive(character);
+        }
+        return model(value, sampled);
     }
 
-    private String cleanPrefix(String fieldName, String prefix) {
-        return fieldName.startsWith(prefix) ? fieldName.substring(prefix.length()) : fieldName;
+    private static JsonObject child(JsonObject node, String segment) {
+        JsonElement child = node.get(segment);
+        if (child == null) {
+            JsonObject created = new JsonObject();
+            node.add(segment, created);
+            return created;
+        }
+        return child.getAsJsonObject();
     }
-}
\ No newline at end of file
+}
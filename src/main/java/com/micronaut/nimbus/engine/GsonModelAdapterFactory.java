@@ -0,0 +1,261 @@
+package com.micronaut.nimbus.engine;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Creates the Gson {@link TypeAdapter} that writes the transformed document of a model class, the Gson
+ * counterpart of {@link StreamingJsonTransformer}. An adapter follows the {@link OutputLayout} of its class:
+ * the model is read once into the layout's value slots, then every output object is written to the
+ * {@link JsonWriter} exactly once with the annotation rules applied. Model elements of collections and maps are
+ * written by the adapter of their own class; classes whose layout is not streamable, and instances with a nested
+ * model of a subclass, are written from the tree of {@link GsonJsonTransformer}.
+ * <p>
+ * Adapters are cached per class in a {@link ClassValue}, so a model class holds its own adapter and none is
+ * kept for classes that have been unloaded. The factory only creates adapters for model classes and leaves
+ * every other type to Gson. Adapters read the plain JSON of the model through the adapter Gson would have used
+ * without the factory, so {@code gson().fromJson} binds models as usual; transformed documents are not bound back.
+ */
+final class GsonModelAdapterFactory implements TypeAdapterFactory {
+
+    private static final TypeAdapter<JsonElement> elements = new Gson().getAdapter(JsonElement.class);
+
+    private final GsonJsonTransformer treeTransformer;
+    private final ClassValue<ModelAdapter> adapters = new ClassValue<>() {
+        @Override
+        protected ModelAdapter computeValue(Class<?> type) {
+            try {
+                return new ModelAdapter(OutputLayout.of(type));
+            } catch (IllegalAccessException e) {
+                throw new PlanResolutionException(e);
+            }
+        }
+    };
+
+    GsonModelAdapterFactory(GsonJsonTransformer treeTransformer) {
+        this.treeTransformer = treeTransformer;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> raw = type.getRawType();
+        if (!isModel(raw)) {
+            return null;
+        }
+        try {
+            return (TypeAdapter<T>) adapter(raw);
+        } catch (IllegalAccessException e) {
+            throw new PlanResolutionException(e);
+        }
+    }
+
+    /**
+     * Returns the adapter of the model class, creating it on first use.
+     *
+     * @throws IllegalAccessException if the fields of the class cannot be read
+     */
+    TypeAdapter<Object> adapter(Class<?> type) throws IllegalAccessException {
+        try {
+            return adapters.get(type);
+        } catch (PlanResolutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static boolean isModel(Class<?> type) {
+        return !type.isPrimitive() && !type.isArray() && !type.isInterface()
+                && !FieldPlan.isLeafType(type) && !Collection.class.isAssignableFrom(type)
+                && !Map.class.isAssignableFrom(type) && type != Optional.class
+                && !JsonElement.class.isAssignableFrom(type) && !type.getName().startsWith("java.");
+    }
+
+    /**
+     * Writes a leaf value as {@link TransformSupport#writeValue} does.
+     */
+    private static void writeValue(JsonWriter out, Object value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else if (value instanceof String string) {
+            out.value(string);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Byte) {
+            out.value(((Number) value).longValue());
+        } else if (value instanceof Double number) {
+            out.value(number.doubleValue());
+        } else if (value instanceof Boolean bool) {
+            out.value(bool.booleanValue());
+        } else if (value instanceof Number number) {
+            out.value(number);
+        } else {
+            out.value(value.toString());
+        }
+    }
+
+    private static void writePrimitiveArray(JsonWriter out, Object value) throws IOException {
+        if (value instanceof char[] chars) {
+            out.value(new String(chars));
+            return;
+        }
+        out.beginArray();
+        if (value instanceof int[] ints) {
+            for (int element : ints) {
+                out.value(element);
+            }
+        } else if (value instanceof long[] longs) {
+            for (long element : longs) {
+                out.value(element);
+            }
+        } else if (value instanceof double[] doubles) {
+            for (double element : doubles) {
+                out.value(element);
+            }
+        } else if (value instanceof float[] floats) {
+            for (float element : floats) {
+                out.value(element);
+            }
+        } else if (value instanceof short[] shorts) {
+            for (short element : shorts) {
+                out.value(element);
+            }
+        } else if (value instanceof byte[] bytes) {
+            for (byte element : bytes) {
+                out.value(element);
+            }
+        } else if (value instanceof boolean[] booleans) {
+            for (boolean element : booleans) {
+                out.value(element);
+            }
+        }
+        out.endArray();
+    }
+
+    private final class ModelAdapter extends TypeAdapter<Object> {
+
+        private final OutputLayout layout;
+        private volatile TypeAdapter<Object> reader;
+
+        ModelAdapter(OutputLayout layout) {
+            this.layout = layout;
+        }
+
+        @Override
+        public void write(JsonWriter out, Object value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            try {
+                Object[] values = layout.streamable() ? layout.readValues(value) : null;
+                if (values != null) {
+                    out.beginObject();
+                    writeChildren(out, layout.root(), values);
+                    out.endObject();
+                } else {
+                    elements.write(out, treeTransformer.transform(value));
+                }
+            } catch (IllegalAccessException e) {
+                throw new PlanResolutionException(e);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object read(JsonReader in) throws IOException {
+            TypeAdapter<Object> current = reader;
+            if (current == null) {
+                // Created on first read, as most adapters only ever write
+                current = (TypeAdapter<Object>) treeTransformer.gson()
+                        .getDelegateAdapter(GsonModelAdapterFactory.this, TypeToken.get(layout.type()));
+                reader = current;
+            }
+            return current.read(in);
+        }
+
+        private void writeChildren(JsonWriter out, OutputLayout.Node node, Object[] values)
+                throws IOException, IllegalAccessException {
+            for (OutputLayout.Node child : node.children) {
+                writeNode(out, child, values);
+            }
+        }
+
+        private void writeNode(JsonWriter out, OutputLayout.Node node, Object[] values)
+                throws IOException, IllegalAccessException {
+            if (node.slot >= 0) {
+                Object value = values[node.slot];
+                if (value != OutputLayout.ABSENT && (value == null || !node.nested)) {
+                    out.name(node.key);
+                    FieldPlan field = layout.slotField(node.slot);
+                    if (field.isContainer(value)) {
+                        writeElement(out, value, field.valueRules());
+                    } else if (value instanceof String string && field.hasValueRules()) {
+                        // JsonWriter only takes strings, so the rules cannot be applied while writing
+                        out.value(field.applyValueRules(string));
+                    } else {
+                        writeValue(out, value);
+                    }
+                    return;
+                }
+            }
+            for (OutputLayout.Node child : node.children) {
+                if (child.present(values)) {
+                    out.name(node.key).beginObject();
+                    writeChildren(out, node, values);
+                    out.endObject();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Writes a collection, array, map or {@code Optional} value element by element, as
+         * {@link OutputLayout#writeElement} does.
+         */
+        private void writeElement(JsonWriter out, Object value, UnaryOperator<String> rules)
+                throws IOException, IllegalAccessException {
+            if (value == null) {
+                out.nullValue();
+            } else if (value instanceof String string) {
+                out.value(rules.apply(string));
+            } else if (value instanceof Optional<?> optional) {
+                writeElement(out, optional.orElse(null), rules);
+            } else if (value instanceof Collection<?> collection) {
+                out.beginArray();
+                for (Object element : collection) {
+                    writeElement(out, element, rules);
+                }
+                out.endArray();
+            } else if (value instanceof Object[] items) {
+                out.beginArray();
+                for (Object element : items) {
+                    writeElement(out, element, rules);
+                }
+                out.endArray();
+            } else if (value instanceof Map<?, ?> map) {
+                out.beginObject();
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    out.name(String.valueOf(entry.getKey()));
+                    writeElement(out, entry.getValue(), rules);
+                }
+                out.endObject();
+            } else if (value.getClass().isArray()) {
+                writePrimitiveArray(out, value);
+            } else if (FieldPlan.isLeafType(value.getClass())) {
+                writeValue(out, value);
+            } else {
+                adapter(value.getClass()).write(out, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.micronaut.nimbus.engine;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.inject.Singleton;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Tree engine driven by Micronaut's compile-time {@code BeanIntrospection}. Property values are read
+ * through the generated introspection code and annotation values come from its metadata, so the engine
+ * needs no reflection and works in a GraalVM native image. Models without an introspection fall back to
+ * reflective plans.
+ */
+@Singleton
+public class IntrospectionTransformer implements Transformer {
+
+    @Override
+    public String id() {
+        return "introspection";
+    }
+
+    @Override
+    public void prepare(Class<?> type) throws IllegalAccessException {
+        TransformPlan.introspected(type);
+    }
+
+    @Override
+    public ObjectNode transform(Object input) throws IllegalAccessException {
+        TransformEvent event = TransformProfiler.beginTransform();
+        boolean sampled = TransformProfiler.sample();
+        ObjectNode result = JsonTransformer.transformTree(input, PlanSource.INTROSPECTION, sampled ? id() : null);
+        TransformProfiler.endTransform(event, id(), input.getClass(), sampled);
+        return result;
+    }
+
+    @Override
+    public void write(Object input, OutputStream out) throws IOException, IllegalAccessException {
+        TransformSupport.mapper().writeValue(out, transform(input));
+    }
+
+    @Override
+    public void write(Object input, JsonGenerator generator) throws IOException, IllegalAccessException {
+        TransformSupport.mapper().writeTree(generator, transform(input));
+    }
+}
@@ -1,95 +1,127 @@
 package com.micronaut.nimbus.engine;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.micronaut.nimbus.annotations.*;
 import jakarta.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 
 @Singleton
-public class JsonTransformer {
+public class JsonTransformer implements Transformer {
     private static final Logger log = LoggerFactory.getLogger(JsonTransformer.class);
 
+    @Override
+    public String id() {
+        return "jackson";
+    }
+
+    /**
+     * Resolves the plan and the build-time transformer of the class, or generates its runtime transformer.
+     */
+    @Override
+    public void prepare(Class<?> type) throws IllegalAccessException {
+        TransformPlan.of(type);
+        generatedTransformer(type);
+    }
+
+    @Override
     public ObjectNode transform(Object input) throws IllegalAccessException {
-        ObjectNode result = JsonNodeFactory.instance.objectNode();
-        ObjectNode parentNode = JsonNodeFactory.instance.objectNode();
-        processFields(result, input, parentNode, "");
-        log.debug("Final Transformation Result: {}", result);
+        TransformEvent event = TransformProfiler.beginTransform();
+        // Sampled transforms walk the plans even when a generated transformer exists, so that fields can be timed
+        boolean sampled = TransformProfiler.sample();
+        ObjectNode result = sampled
+                ? transformTree(input, PlanSource.REFLECTION, id())
+                : transformModel(input, PlanSource.REFLECTION);
+        TransformProfiler.endTransform(event, id(), input.getClass(), sampled);
         return result;
     }
 
-    private void processFields(ObjectNode resultNode, Object input, ObjectNode parentNode, String parentPath) throws IllegalAccessException {
-        Class<?> clazz = input.getClass();
-        for (Field field : clazz.getDeclaredFields()) {
-            field.setAccessible(true);
-            Object value = field.get(input);
-            log.debug("Processin Field: {} with Value: {} and Path: {}", field.getName(), value, parentPath);
-
-            //Setting field path
-            String fieldPath = (field.isAnnotationPresent(JsonNestedTransform.class))
-                    ? field.getAnnotation(JsonNestedTransform.class).path()
-                    : parentPath.equals("") ? field.getName() : parentPath + '.' + field.getName();
-
-            //Processing @JsonRename Annotation
-            if (field.isAnnotationPresent(JsonRename.class)) {
-                String new_name = field.getAnnotation(JsonRename.class).name();
-                fieldPath = parentPath.equals("") ? new_name : parentPath + '.' + new_name;
-                log.debug("Cleaned Field Name: {}", fieldPath);
-            }
+    @Override
+    public void write(Object input, OutputStream out) throws IOException, IllegalAccessException {
+        TransformSupport.mapper().writeValue(out, transform(input));
+    }
 
-            //Processing @JsonCleanPrefix Annotation
-            if (field.isAnnotationPresent(JsonCleanPrefix.class)) {
-                String prefix = field.getAnnotation(JsonCleanPrefix.class).prefix();
-                fieldPath = parentPath.equals("") ? cleanPrefix(field.getName(), prefix) : parentPath + '.' + cleanPrefix(field.getName(), prefix);
-                log.debug("Cleaned Field Name: {}", fieldPath);
-            }
+    @Override
+    public void write(Object input, JsonGenerator generator) throws IOException, IllegalAccessException {
+        TransformSupport.mapper().writeTree(generator, transform(input));
+    }
 
-            //Processing @JsonToUpper and @JsonToLower
-            if (field.getName() instanceof String stringValue) {
-                if (field.isAnnotationPresent(JsonToUpper.class)) {
-                    fieldPath = parentPath.equals("") ? stringValue.toUpperCase() : parentPath + '.' + stringValue.toUpperCase();
-                    log.debug("Transformed to UpperCase: {}", fieldPath);
-                } else if (field.isAnnotationPresent(JsonToLower.class)) {
-                    fieldPath = parentPath.equals("") ? stringValue.toLowerCase() : parentPath + '.' + stringValue.toLowerCase();
-                    log.debug("Transformed to LowerCase: {}", fieldPath);
-                }
-            }
+    /**
+     * Builds the transformed tree by walking the plans of the input and its nested models.
+     */
+    static ObjectNode transformTree(Object input, PlanSource plans) throws IllegalAccessException {
+        return transformTree(input, plans, null);
+    }
 
-            // Process Nested Objects Recursively
-            if (value != null && !isPrimitiveOrWrapper(value.getClass())) {
-                ObjectNode childNode = JsonNodeFactory.instance.objectNode();
-                log.debug("Traversing Nested Objects {} : {}", fieldPath, value);
-                processFields(resultNode, value, childNode, fieldPath);
-                parentNode.set(fieldPath, childNode);
-            } else {
-                setFieldValueInNode(resultNode, fieldPath, value);
+    /**
+     * Builds the transformed tree, recording a {@link FieldTransformEvent} per field under the given engine
+     * id unless {@code profiledEngine} is {@code null}.
+     */
+    static ObjectNode transformTree(Object input, PlanSource plans, String profiledEngine)
+            throws IllegalAccessException {
+        ObjectNode result = JsonNodeFactory.instance.objectNode();
+        processFields(plans, input, result, null, PathTrie.BASE, profiledEngine);
+        log.debug("Final Transformation Result: {}", result);
+        return result;
+    }
+
+    /**
+     * Transforms a model with its generated transformer when the plans are the reflective ones and one
+     * exists, and by walking its plans otherwise.
+     */
+    static ObjectNode transformModel(Object input, PlanSource plans) throws IllegalAccessException {
+        if (plans == PlanSource.REFLECTION) {
+            GeneratedTransformer<Object> generated = generatedTransformer(input.getClass());
+            if (generated != null) {
+                return generated.transform(input);
             }
         }
+        return transformTree(input, plans);
     }
 
-    private String cleanPrefix(String fieldName, String prefix) {
-        return fieldName.startsWith(prefix) ? fieldName.substring(prefix.length()) : fieldName;
+    /**
+     * The build-time transformer of the class, or else the one generated for it at run time.
+     */
+    @SuppressWarnings("unchecked")
+    private static GeneratedTransformer<Object> generatedTransformer(Class<?> type) {
+        GeneratedTransformer<Object> generated = (GeneratedTransformer<Object>) GeneratedTransformers.find(type);
+        return generated != null ? generated : RuntimeTransformers.find(type);
     }
 
-    private boolean isPrimitiveOrWrapper(Class<?> type) {
-        return type.isPrimitive() || type == String.class || Number.class.isAssignableFrom(type)
-                || Boolean.class.isAssignableFrom(type);
-    }
+    private static void processFields(PlanSource plans, Object input, ObjectNode root, Cursor<ObjectNode> outer,
+                                      int outerNode, String profiledEngine) throws IllegalAccessException {
+        TransformPlan plan = plans.plan(input.getClass());
+        PathTrie trie = plan.trie();
+        Cursor<ObjectNode> cursor = new Cursor<>(trie, root, outer, outerNode, TransformSupport::child);
+        List<FieldPlan> fields = plan.fields();
+        for (int i = 0; i < fields.size(); i++) {
+            FieldPlan field = fields.get(i);
+            FieldTransformEvent event = profiledEngine != null ? TransformProfiler.beginField() : null;
+            Object value = field.read(input);
+
+            //Processing @JsonCleanPrefix, @JsonToUpper and @JsonToLower on String values
+            if (value instanceof String stringValue && field.hasValueRules()) {
+                value = field.applyValueRules(stringValue);
+            }
+
+            // Process Nested Objects Recursively, into the object at the field's own path
+            if (field.isNested(value)) {
+                processFields(plans, value, root, cursor, trie.fieldTarget(i), profiledEngine);
+            } else if (field.isContainer(value)) {
+                cursor.node(trie.fieldParent(i))
+                        .set(field.key(), TransformSupport.valueNode(value, field.valueRules(), plans));
+            } else {
+                TransformSupport.putValue(cursor.node(trie.fieldParent(i)), field.key(), value);
+            }
 
-    private void setFieldValueInNode(ObjectNode resultNode, String path, Object value) {
-        log.debug("Setting Field value {} : {} in Result :{}", path, value, resultNode);
-        String[] pathSegments = path.split("\\.");
-        ObjectNode currentNode = resultNode;
-        for (int i = 0; i < pathSegments.length - 1; i++) {
-            String segment = pathSegments[i];
-            if (!currentNode.has(segment)) {
-                currentNode.set(segment, JsonNodeFactory.instance.objectNode());
+            if (event != null) {
+                TransformProfiler.endField(event, profiledEngine, plan.type(), field);
             }
-            currentNode = (ObjectNode) currentNode.get(segment);
         }
-        currentNode.putPOJO(pathSegments[pathSegments.length - 1], value);
     }
 }
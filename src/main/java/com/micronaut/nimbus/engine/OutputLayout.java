@@ -0,0 +1,375 @@
+package com.micronaut.nimbus.engine;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The output document of a root model class, compiled from the {@link TransformPlan}s of the class and of
+ * the declared types of its nested models. Output paths are merged into a trie, so every output object
+ * appears once with all of its keys, and every field read from the input becomes a numbered value slot.
+ * <p>
+ * Layouts are built from declared types. Classes with {@code Object}-typed fields, recursive models or
+ * fields that write to the same output key are not {@link #streamable()}; the streaming engines hand them
+ * to the tree engine instead. So do they with an instance whose nested model is of a subclass of the declared
+ * type, as {@link #readValues} tells them, since the tree engines write it with the fields of the subclass.
+ * Collection, array and map fields are single slots whose elements are written when the document is.
+ */
+public final class OutputLayout {
+
+    /**
+     * Marks a slot whose owning object is {@code null}, so the field was never visited.
+     */
+    static final Object ABSENT = new Object();
+
+    private static final ClassValue<OutputLayout> LAYOUTS = new ClassValue<>() {
+        @Override
+        protected OutputLayout computeValue(Class<?> type) {
+            try {
+                return new OutputLayout(type);
+            } catch (IllegalAccessException e) {
+                throw new PlanResolutionException(e);
+            }
+        }
+    };
+
+    private final Class<?> type;
+    private final Node root = new Node(null);
+    private final List<FieldPlan> slotFields = new ArrayList<>();
+    private final List<Integer> slotParents = new ArrayList<>();
+    private FieldPlan[] fields;
+    private int[] parents;
+    private String notStreamable;
+
+    private OutputLayout(Class<?> type) throws IllegalAccessException {
+        PlanResolutionEvent event = TransformProfiler.beginPlan();
+        this.type = type;
+        slotFields.add(null);
+        slotParents.add(-1);
+        Set<Class<?>> visiting = new HashSet<>();
+        visiting.add(type);
+        compile(type, 0, new String[0], visiting);
+        fields = slotFields.toArray(new FieldPlan[0]);
+        parents = slotParents.stream().mapToInt(Integer::intValue).toArray();
+        root.seal(this);
+        TransformProfiler.endPlan(event, type, "layout", fields.length - 1);
+    }
+
+    /**
+     * Returns the layout of the given root class, compiling it on first use.
+     *
+     * @throws IllegalAccessException if the fields of the class cannot be read
+     */
+    public static OutputLayout of(Class<?> type) throws IllegalAccessException {
+        try {
+            return LAYOUTS.get(type);
+        } catch (PlanResolutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    public Class<?> type() {
+        return type;
+    }
+
+    public boolean streamable() {
+        return notStreamable == null;
+    }
+
+    /**
+     * Why the layout cannot be streamed, or {@code null} when it can.
+     */
+    public String notStreamableReason() {
+        return notStreamable;
+    }
+
+    Node root() {
+        return root;
+    }
+
+    int slotCount() {
+        return fields.length;
+    }
+
+    FieldPlan slotField(int slot) {
+        return fields[slot];
+    }
+
+    int slotParent(int slot) {
+        return parents[slot];
+    }
+
+    /**
+     * Reads every slot of the layout from the input in a single forward pass. Slot 0 is the input itself;
+     * fields below a {@code null} object are {@link #ABSENT}. String values are read as they are; their value
+     * rules are applied when they are written.
+     *
+     * @return the slot values, or {@code null} when a nested model is not of its declared type: its fields are
+     * not those of the layout
+     */
+    Object[] readValues(Object input) {
+        Object[] values = new Object[fields.length];
+        values[0] = input;
+        for (int i = 1; i < fields.length; i++) {
+            Object owner = values[parents[i]];
+            if (owner == null || owner == ABSENT) {
+                values[i] = ABSENT;
+                continue;
+            }
+            FieldPlan field = fields[i];
+            Object value = field.read(owner);
+            if (value != null && field.kind() == FieldPlan.Kind.NESTED && value.getClass() != field.type()) {
+                return null;
+            }
+            values[i] = value;
+        }
+        return values;
+    }
+
+    /**
+     * Writes the document for the given slot values. A nested slot holding any non-null value is written as
+     * an object made of the keys below it; collections, arrays and maps are written element by element and
+     * other leaf slots with {@link TransformSupport#writeValue}. Strings of fields with value rules are
+     * written through {@link ValueTransforms}.
+     *
+     * @throws IllegalAccessException if the fields of a model element cannot be read
+     */
+    void write(JsonGenerator generator, Object[] values) throws IOException, IllegalAccessException {
+        write(generator, values, new ValueTransforms());
+    }
+
+    void write(JsonGenerator generator, Object[] values, ValueTransforms transforms)
+            throws IOException, IllegalAccessException {
+        generator.writeStartObject();
+        writeChildren(generator, root, values, transforms);
+        generator.writeEndObject();
+    }
+
+    private void writeChildren(JsonGenerator generator, Node node, Object[] values, ValueTransforms transforms)
+            throws IOException, IllegalAccessException {
+        for (Node child : node.children) {
+            writeNode(generator, child, values, transforms);
+        }
+    }
+
+    private void writeNode(JsonGenerator generator, Node node, Object[] values, ValueTransforms transforms)
+            throws IOException, IllegalAccessException {
+        if (node.slot >= 0) {
+            Object value = values[node.slot];
+            if (value != ABSENT && (value == null || !node.nested)) {
+                generator.writeFieldName(node.key);
+                FieldPlan field = fields[node.slot];
+                if (field.isContainer(value)) {
+                    writeElement(generator, value, field, transforms);
+                } else if (value instanceof String string && field.hasValueRules()) {
+                    transforms.writeString(generator, field, string);
+                } else {
+                    TransformSupport.writeValue(generator, value);
+                }
+                return;
+            }
+        }
+        if (hasPresentChild(node, values)) {
+            generator.writeObjectFieldStart(node.key);
+            writeChildren(generator, node, values, transforms);
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes a collection, array, map or {@code Optional} value element by element; the streaming
+     * counterpart of {@link TransformSupport#valueNode}. Model elements are streamed with their own layout,
+     * or written through the tree engine when it is not streamable. String elements get the value rules of
+     * the field.
+     */
+    static void writeElement(JsonGenerator generator, Object value, FieldPlan field, ValueTransforms transforms)
+            throws IOException, IllegalAccessException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String string) {
+            if (field.hasValueRules()) {
+                transforms.writeString(generator, field, string);
+            } else {
+                generator.writeString(string);
+            }
+        } else if (value instanceof Optional<?> optional) {
+            writeElement(generator, optional.orElse(null), field, transforms);
+        } else if (value instanceof Collection<?> collection) {
+            generator.writeStartArray(collection, collection.size());
+            for (Object element : collection) {
+                writeElement(generator, element, field, transforms);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Object[] elements) {
+            generator.writeStartArray(elements, elements.length);
+            for (Object element : elements) {
+                writeElement(generator, element, field, transforms);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Map<?, ?> map) {
+            generator.writeStartObject(map, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeElement(generator, entry.getValue(), field, transforms);
+            }
+            generator.writeEndObject();
+        } else if (value.getClass().isArray()) {
+            writePrimitiveArray(generator, value);
+        } else if (FieldPlan.isLeafType(value.getClass())) {
+            TransformSupport.writeValue(generator, value);
+        } else {
+            OutputLayout layout = of(value.getClass());
+            Object[] values = layout.streamable() ? layout.readValues(value) : null;
+            if (values != null) {
+                layout.write(generator, values, transforms);
+            } else {
+                TransformSupport.mapper().writeTree(generator, JsonTransformer.transformModel(value, PlanSource.REFLECTION));
+            }
+        }
+    }
+
+    private static void writePrimitiveArray(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof int[] ints) {
+            generator.writeArray(ints, 0, ints.length);
+        } else if (value instanceof long[] longs) {
+            generator.writeArray(longs, 0, longs.length);
+        } else if (value instanceof double[] doubles) {
+            generator.writeArray(doubles, 0, doubles.length);
+        } else if (value instanceof char[] chars) {
+            generator.writeString(chars, 0, chars.length);
+        } else {
+            generator.writeStartArray(value, Array.getLength(value));
+            if (value instanceof float[] floats) {
+                for (float element : floats) {
+                    generator.writeNumber(element);
+                }
+            } else if (value instanceof short[] shorts) {
+                for (short element : shorts) {
+                    generator.writeNumber(element);
+                }
+            } else if (value instanceof byte[] bytes) {
+                for (byte element : bytes) {
+                    generator.writeNumber(element);
+                }
+            } else if (value instanceof boolean[] booleans) {
+                for (boolean element : booleans) {
+                    generator.writeBoolean(element);
+                }
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private boolean hasPresentChild(Node node, Object[] values) {
+        for (Node child : node.children) {
+            if (child.present(values)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void compile(Class<?> type, int ownerSlot, String[] parentPath, Set<Class<?>> visiting)
+            throws IllegalAccessException {
+        for (FieldPlan field : TransformPlan.of(type).fields()) {
+            if (field.kind() == FieldPlan.Kind.DYNAMIC) {
+                reject(type.getName() + '.' + field.name() + " is declared as " + field.type().getName());
+                continue;
+            }
+
+            int slot = slotFields.size();
+            slotFields.add(field);
+            slotParents.add(ownerSlot);
+
+            // Nested objects are compiled before their own node is placed, so that the node lands where the
+            // first of its keys is written, which is where the tree engines create it
+            String[] path = field.resolve(parentPath);
+            if (field.kind() == FieldPlan.Kind.NESTED) {
+                if (!visiting.add(field.type())) {
+                    reject(field.type().getName() + " is recursive");
+                    continue;
+                }
+                compile(field.type(), slot, path, visiting);
+                visiting.remove(field.type());
+            }
+
+            Node node = root;
+            for (String segment : path) {
+                node = node.child(segment);
+            }
+            if (node.slot >= 0) {
+                reject("more than one field is written to " + String.join(".", path));
+                continue;
+            }
+            node.slot = slot;
+        }
+    }
+
+    private void reject(String reason) {
+        if (notStreamable == null) {
+            notStreamable = reason;
+        }
+    }
+
+    /**
+     * One key of the output document. A node is bound to the value slot of the field written at its path, if
+     * any, and holds the keys below it in first-write order.
+     */
+    static final class Node {
+
+        final String key;
+        final Map<String, Node> childrenByKey = new LinkedHashMap<>();
+        Node[] children;
+        int slot = -1;
+        boolean nested;
+        int[] subtreeSlots;
+
+        Node(String key) {
+            this.key = key;
+        }
+
+        Node child(String segment) {
+            return childrenByKey.computeIfAbsent(segment, Node::new);
+        }
+
+        /**
+         * Whether anything is written for this node: its own field, or any field below it, was visited.
+         */
+        boolean present(Object[] values) {
+            for (int slot : subtreeSlots) {
+                if (values[slot] != ABSENT) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int[] seal(OutputLayout layout) {
+            children = childrenByKey.values().toArray(new Node[0]);
+            nested = slot >= 0 && layout.slotFields.get(slot).kind() == FieldPlan.Kind.NESTED;
+            if (slot >= 0 && !nested && children.length > 0) {
+                layout.reject("the value of " + layout.slotFields.get(slot).name() + " is also used as an object");
+            }
+            List<Integer> slots = new ArrayList<>();
+            if (slot >= 0) {
+                slots.add(slot);
+            }
+            for (Node child : children) {
+                for (int childSlot : child.seal(layout)) {
+                    slots.add(childSlot);
+                }
+            }
+            subtreeSlots = slots.stream().mapToInt(Integer::intValue).toArray();
+            return subtreeSlots;
+        }
+    }
+}
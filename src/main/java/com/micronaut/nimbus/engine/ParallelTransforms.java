@@ -0,0 +1,177 @@
+package com.micronaut.nimbus.engine;
+
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Value;
+import jakarta.annotation.PreDestroy;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Opt-in fork/join transform of large collections, arrays and maps. The elements of a container are
+ * transformed as documents of their own, so a container of at least {@code nimbus.parallel.threshold}
+ * elements is split into ranges that run as tasks on a dedicated {@link ForkJoinPool}. Each result is kept at
+ * the index of its element and the container is filled in input order afterwards, so the output is the
+ * same as that of a sequential transform. Containers nested in the elements fork into the same pool.
+ * <p>
+ * Engines are not beans everywhere they are used, so the pool is held statically, as the sampling rate of
+ * {@link TransformProfiler} is, and created when the application context starts.
+ */
+@Context
+public final class ParallelTransforms {
+
+    /**
+     * Ranges per worker thread: enough to even out elements of uneven cost.
+     */
+    private static final int RANGES_PER_WORKER = 4;
+
+    private static volatile ForkJoinPool pool;
+    private static volatile int threshold = Integer.MAX_VALUE;
+
+    public ParallelTransforms(@Value("${nimbus.parallel.enabled:false}") boolean enabled,
+                              @Value("${nimbus.parallel.threshold:512}") int threshold,
+                              @Value("${nimbus.parallel.parallelism:0}") int parallelism) {
+        if (enabled) {
+            enable(threshold, parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * Transforms containers of at least {@code threshold} elements on a pool of {@code parallelism} threads.
+     */
+    public static synchronized void enable(int threshold, int parallelism) {
+        if (threshold < 2) {
+            throw new IllegalArgumentException("nimbus.parallel.threshold must be at least 2");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("nimbus.parallel.parallelism must be positive");
+        }
+        disable();
+        pool = new ForkJoinPool(parallelism);
+        ParallelTransforms.threshold = threshold;
+    }
+
+    /**
+     * Transforms every container sequentially again and shuts the pool down.
+     */
+    public static synchronized void disable() {
+        ForkJoinPool current = pool;
+        threshold = Integer.MAX_VALUE;
+        pool = null;
+        if (current != null) {
+            current.shutdown();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        disable();
+    }
+
+    /**
+     * Whether a container of {@code size} elements is transformed in parallel.
+     */
+    static boolean forks(int size) {
+        return size >= threshold;
+    }
+
+    /**
+     * Transforms the elements in parallel and returns the results in element order. Falls back to the
+     * calling thread when the pool has been shut down in the meantime.
+     */
+    static <T> List<T> transformAll(Object[] elements, ElementTransform<T> transform) throws IllegalAccessException {
+        return transformAll(pool, elements, transform);
+    }
+
+    /**
+     * Transforms the elements on the given pool, or on the calling thread when it is {@code null} or rejects
+     * them. A pool read from {@link #pool} may be shut down by a concurrent {@link #enable} or {@link #disable}
+     * before the task is submitted; the elements are transformed sequentially then.
+     */
+    static <T> List<T> transformAll(ForkJoinPool current, Object[] elements, ElementTransform<T> transform)
+            throws IllegalAccessException {
+        Object[] results = new Object[elements.length];
+        if (current == null || !invoke(current, elements, results, transform)) {
+            for (int i = 0; i < elements.length; i++) {
+                results[i] = transform.apply(elements[i]);
+            }
+        }
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(results);
+        return list;
+    }
+
+    /**
+     * Runs the range tasks of the elements on the pool, returning {@code false} when the pool rejects them.
+     */
+    private static boolean invoke(ForkJoinPool current, Object[] elements, Object[] results,
+                                  ElementTransform<?> transform) throws IllegalAccessException {
+        int range = Math.max(1, elements.length / (current.getParallelism() * RANGES_PER_WORKER));
+        RangeTask task = new RangeTask(elements, results, 0, elements.length, range, transform);
+        try {
+            if (ForkJoinTask.getPool() == current) {
+                task.invoke();
+            } else {
+                current.invoke(task);
+            }
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        } catch (RuntimeException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof PlanResolutionException resolution) {
+                    throw resolution.getCause();
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Transforms one element of a container.
+     */
+    @FunctionalInterface
+    interface ElementTransform<T> {
+        T apply(Object element) throws IllegalAccessException;
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+
+        private final Object[] elements;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+        private final int range;
+        private final ElementTransform<?> transform;
+
+        RangeTask(Object[] elements, Object[] results, int from, int to, int range, ElementTransform<?> transform) {
+            this.elements = elements;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.range = range;
+            this.transform = transform;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= range) {
+                try {
+                    for (int i = from; i < to; i++) {
+                        results[i] = transform.apply(elements[i]);
+                    }
+                } catch (IllegalAccessException e) {
+                    throw new PlanResolutionException(e);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(elements, results, from, middle, range, transform),
+                    new RangeTask(elements, results, middle, to, range, transform));
+        }
+    }
+}
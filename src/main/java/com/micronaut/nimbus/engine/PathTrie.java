@@ -0,0 +1,86 @@
+package com.micronaut.nimbus.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The output objects written by the fields of one class, merged into a trie. Relative paths hang below
+ * {@link #BASE}, the object the class is transformed into; absolute {@code @JsonNestedTransform} paths hang
+ * below {@link #ROOT}, the document root. Every field knows the trie node of the object its value is put
+ * into, and nested fields also the node their model is transformed into.
+ * <p>
+ * The tree engines keep one cursor array per visited object, indexed by trie node, so each output object is
+ * looked up once per visit and sibling leaves are put straight into it.
+ */
+final class PathTrie {
+
+    static final int BASE = 0;
+    static final int ROOT = 1;
+
+    private final int[] parents;
+    private final String[] keys;
+    private final int[] fieldParents;
+    private final int[] fieldTargets;
+
+    PathTrie(List<FieldPlan> fields) {
+        List<Integer> nodeParents = new ArrayList<>(List.of(-1, -1));
+        List<String> nodeKeys = new ArrayList<>(Arrays.asList(null, null));
+        Map<String, Integer> children = new HashMap<>();
+        this.fieldParents = new int[fields.size()];
+        this.fieldTargets = new int[fields.size()];
+
+        for (int i = 0; i < fields.size(); i++) {
+            FieldPlan field = fields.get(i);
+            String[] segments = field.segments();
+            int node = field.absolute() ? ROOT : BASE;
+            for (int s = 0; s < segments.length - 1; s++) {
+                node = child(node, segments[s], nodeParents, nodeKeys, children);
+            }
+            fieldParents[i] = node;
+            fieldTargets[i] = field.kind() == FieldPlan.Kind.NESTED || field.kind() == FieldPlan.Kind.DYNAMIC
+                    ? child(node, field.key(), nodeParents, nodeKeys, children)
+                    : -1;
+        }
+        this.parents = nodeParents.stream().mapToInt(Integer::intValue).toArray();
+        this.keys = nodeKeys.toArray(new String[0]);
+    }
+
+    private static int child(int parent, String key, List<Integer> parents, List<String> keys,
+                             Map<String, Integer> children) {
+        return children.computeIfAbsent(parent + "/" + key, k -> {
+            parents.add(parent);
+            keys.add(key);
+            return parents.size() - 1;
+        });
+    }
+
+    int size() {
+        return parents.length;
+    }
+
+    int parent(int node) {
+        return parents[node];
+    }
+
+    String key(int node) {
+        return keys[node];
+    }
+
+    /**
+     * The node of the object the value of the field at {@code index} is put into.
+     */
+    int fieldParent(int index) {
+        return fieldParents[index];
+    }
+
+    /**
+     * The node of the object a nested model read from the field at {@code index} is transformed into, or
+     * {@code -1} for leaf, collection and map fields.
+     */
+    int fieldTarget(int index) {
+        return fieldTargets[index];
+    }
+}
@@ -0,0 +1,26 @@
+package com.micronaut.nimbus.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The resolution of a per-class plan or layout, which happens once per class.
+ */
+@Name("com.micronaut.nimbus.PlanResolution")
+@Label("Plan Resolution")
+@Category({"Nimbus", "Plan"})
+@Description("Resolution of a transform plan or output layout")
+final class PlanResolutionEvent extends jdk.jfr.Event {
+
+    @Label("Model")
+    String model;
+
+    @Label("Source")
+    @Description("reflection, introspection or layout")
+    String source;
+
+    @Label("Fields")
+    int fields;
+}
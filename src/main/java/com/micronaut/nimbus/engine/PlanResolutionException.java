@@ -0,0 +1,17 @@
+package com.micronaut.nimbus.engine;
+
+/**
+ * Carries an {@link IllegalAccessException} out of a {@link ClassValue} computation, which cannot throw
+ * checked exceptions.
+ */
+final class PlanResolutionException extends RuntimeException {
+
+    PlanResolutionException(IllegalAccessException cause) {
+        super(cause);
+    }
+
+    @Override
+    public synchronized IllegalAccessException getCause() {
+        return (IllegalAccessException) super.getCause();
+    }
+}
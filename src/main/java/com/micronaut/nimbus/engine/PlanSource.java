@@ -0,0 +1,13 @@
+package com.micronaut.nimbus.engine;
+
+/**
+ * Where an engine gets the {@link TransformPlan} of a class from.
+ */
+@FunctionalInterface
+interface PlanSource {
+
+    PlanSource REFLECTION = TransformPlan::of;
+    PlanSource INTROSPECTION = TransformPlan::introspected;
+
+    TransformPlan plan(Class<?> type) throws IllegalAccessException;
+}
@@ -0,0 +1,396 @@
+package com.micronaut.nimbus.engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Writes the bytecode of a transformer for one model class at run time, for classes the build-time
+ * processor never saw. Like the processor's transformers, nested models are inlined into a single
+ * {@code transform} method, output keys and prefixes are constants and parent objects are resolved lazily
+ * into locals. Every field is read through its getter or field handle, loaded as a dynamic constant from the
+ * class data, which the JIT inlines like a direct call.
+ * <p>
+ * The class names no model class: models are handled as {@code Object} and their classes are class data as
+ * well, so the class can be defined next to this one whatever loader the model comes from. A nested value
+ * whose runtime class is not the declared one makes the transform fall back to walking the plans.
+ */
+final class RuntimeTransformerWriter {
+
+    static final String CLASS_NAME = Type.getInternalName(RuntimeTransformerWriter.class)
+            .replace("RuntimeTransformerWriter", "RuntimeTransformer");
+
+    private static final String OBJECT_NODE = Type.getInternalName(ObjectNode.class);
+    private static final String SUPPORT = Type.getInternalName(TransformSupport.class);
+    private static final String STRING = Type.getDescriptor(String.class);
+    private static final String OBJECT = Type.getDescriptor(Object.class);
+    private static final String KEY_VALUE = "(" + STRING + "%s)" + Type.getDescriptor(ObjectNode.class);
+    private static final int THIS = 0;
+    private static final int INPUT = 1;
+    private static final int ROOT = 2;
+    private static final Handle CLASS_DATA_AT = new Handle(Opcodes.H_INVOKESTATIC,
+            Type.getInternalName(MethodHandles.class), "classDataAt",
+            MethodType.methodType(Object.class, MethodHandles.Lookup.class, String.class, Class.class, int.class)
+                    .toMethodDescriptorString(), false);
+
+    private final List<Object> classData = new ArrayList<>();
+    private final Map<String, ParentNode> parents = new LinkedHashMap<>();
+    private final Deque<Class<?>> visiting = new ArrayDeque<>();
+    private final List<Step> steps;
+    private int locals = ROOT + 1;
+    private MethodVisitor method;
+
+    /**
+     * Plans the transformer of the model.
+     *
+     * @throws UnsupportedModelException if the model cannot be compiled, such as a recursive model or one
+     *                                   with {@code Object}-typed fields
+     * @throws IllegalAccessException    if the fields of a model cannot be read
+     */
+    RuntimeTransformerWriter(Class<?> model) throws IllegalAccessException {
+        classData.add(model);
+        this.steps = steps(model, new String[0]);
+    }
+
+    /**
+     * The class data the written class expects, to be passed to
+     * {@link MethodHandles.Lookup#defineHiddenClassWithClassData}.
+     */
+    List<Object> classData() {
+        return List.copyOf(classData);
+    }
+
+    private List<Step> steps(Class<?> type, String[] base) throws IllegalAccessException {
+        if (visiting.contains(type)) {
+            throw new UnsupportedModelException(type.getName() + " is recursive");
+        }
+        visiting.push(type);
+        List<Step> steps = new ArrayList<>();
+        for (FieldPlan field : TransformPlan.of(type).fields()) {
+            String[] path = field.resolve(base);
+            ParentNode parent = parent(Arrays.copyOf(path, path.length - 1));
+            int reader = reader(type, field);
+            switch (field.kind()) {
+                case DYNAMIC -> throw new UnsupportedModelException(
+                        type.getName() + '.' + field.name() + " is declared as a supertype of its values");
+                case NESTED -> {
+                    Class<?> nested = field.type();
+                    if (nested.isInterface() || Modifier.isAbstract(nested.getModifiers())) {
+                        throw new UnsupportedModelException(
+                                type.getName() + '.' + field.name() + " is not declared as a concrete class");
+                    }
+                    steps.add(new Step(field, reader, parent, locals++, constant(nested), steps(nested, path)));
+                }
+                case COLLECTION, PRIMITIVE_ARRAY, MAP ->
+                        steps.add(new Step(field, reader, parent, locals++, constant(field.valueRules()), null));
+                case LEAF -> steps.add(new Step(field, reader, parent, -1, -1, null));
+            }
+        }
+        visiting.pop();
+        return steps;
+    }
+
+    /**
+     * Adds the handle reading the field as the reflective plan does, through its getter when it has one.
+     */
+    private int reader(Class<?> owner, FieldPlan field) throws IllegalAccessException {
+        Field declared = null;
+        for (Class<?> declaring : TransformPlan.hierarchy(owner)) {
+            try {
+                declared = declaring.getDeclaredField(field.name());
+            } catch (NoSuchFieldException e) {
+                // declared by another class of the hierarchy
+            }
+        }
+        if (declared == null) {
+            throw new UnsupportedModelException(owner.getName() + '.' + field.name() + " is not a field");
+        }
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declared.getDeclaringClass(),
+                MethodHandles.lookup());
+        Method getter = TransformPlan.findGetter(declared.getDeclaringClass(), declared);
+        MethodHandle handle = getter != null ? lookup.unreflect(getter) : lookup.unreflectGetter(declared);
+        return constant(handle.asType(MethodType.methodType(readType(declared.getType()), Object.class)));
+    }
+
+    private ParentNode parent(String[] segments) {
+        if (segments.length == 0) {
+            return new ParentNode(ROOT, -1);
+        }
+        return parents.computeIfAbsent(String.join("\u0000", segments),
+                path -> new ParentNode(locals++, constant(segments)));
+    }
+
+    private int constant(Object value) {
+        classData.add(value);
+        return classData.size() - 1;
+    }
+
+    byte[] write() {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected ClassLoader getClassLoader() {
+                return RuntimeTransformerWriter.class.getClassLoader();
+            }
+        };
+        writer.visit(Opcodes.V21, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, CLASS_NAME, null,
+                Type.getInternalName(Object.class), new String[]{Type.getInternalName(GeneratedTransformer.class)});
+
+        method = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        method.visitCode();
+        method.visitVarInsn(Opcodes.ALOAD, THIS);
+        method.visitMethodInsn(Opcodes.INVOKESPECIAL, Type.getInternalName(Object.class), "<init>", "()V", false);
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        method = writer.visitMethod(Opcodes.ACC_PUBLIC, "type", "()" + Type.getDescriptor(Class.class), null, null);
+        method.visitCode();
+        loadConstant(0, Class.class);
+        method.visitInsn(Opcodes.ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        method = writer.visitMethod(Opcodes.ACC_PUBLIC, "transform",
+                "(" + OBJECT + ")" + Type.getDescriptor(ObjectNode.class), null,
+                new String[]{Type.getInternalName(IllegalAccessException.class)});
+        method.visitCode();
+        method.visitFieldInsn(Opcodes.GETSTATIC, Type.getInternalName(JsonNodeFactory.class), "instance",
+                Type.getDescriptor(JsonNodeFactory.class));
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(JsonNodeFactory.class), "objectNode",
+                "()" + Type.getDescriptor(ObjectNode.class), false);
+        method.visitVarInsn(Opcodes.ASTORE, ROOT);
+        for (ParentNode parent : parents.values()) {
+            method.visitInsn(Opcodes.ACONST_NULL);
+            method.visitVarInsn(Opcodes.ASTORE, parent.local);
+        }
+        writeSteps(steps, INPUT);
+        method.visitVarInsn(Opcodes.ALOAD, ROOT);
+        method.visitInsn(Opcodes.ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private void writeSteps(List<Step> steps, int target) {
+        for (Step step : steps) {
+            switch (step.field.kind()) {
+                case LEAF -> writeLeaf(step, target);
+                case NESTED -> writeNested(step, target);
+                default -> writeContainer(step, target);
+            }
+        }
+    }
+
+    /**
+     * Puts the value with the node type {@link TransformSupport#putValue} would choose, and strings after
+     * their value rules.
+     */
+    private void writeLeaf(Step step, int target) {
+        loadParent(step.parent);
+        method.visitLdcInsn(step.field.key());
+        Class<?> type = read(step, target);
+        if (type == String.class) {
+            FieldPlan field = step.field;
+            String prefix = field.prefix();
+            if (prefix != null) {
+                method.visitLdcInsn(prefix);
+                method.visitMethodInsn(Opcodes.INVOKESTATIC, SUPPORT, "cleanPrefix",
+                        "(" + STRING + STRING + ")" + STRING, false);
+            }
+            if (field.caseRule() != FieldPlan.CaseRule.NONE) {
+                String rule = field.caseRule() == FieldPlan.CaseRule.UPPER ? "toUpperCase" : "toLowerCase";
+                method.visitMethodInsn(Opcodes.INVOKESTATIC, SUPPORT, rule, "(" + STRING + ")" + STRING, false);
+            }
+            put(STRING);
+        } else if (type == int.class || type == byte.class) {
+            put("I");
+        } else if (type == short.class || type == long.class || type == double.class || type == float.class
+                || type == boolean.class) {
+            put(Type.getDescriptor(type));
+        } else {
+            if (type == char.class) {
+                method.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(Character.class), "valueOf",
+                        "(C)" + Type.getDescriptor(Character.class), false);
+            }
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, SUPPORT, "putValue",
+                    "(" + Type.getDescriptor(ObjectNode.class) + STRING + OBJECT + ")V", false);
+        }
+    }
+
+    private void put(String valueDescriptor) {
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, OBJECT_NODE, "put", KEY_VALUE.formatted(valueDescriptor), false);
+        method.visitInsn(Opcodes.POP);
+    }
+
+    private void writeContainer(Step step, int target) {
+        read(step, target);
+        method.visitVarInsn(Opcodes.ASTORE, step.local);
+        Label end = new Label();
+        Label present = putNullUnlessPresent(step, end);
+        method.visitLabel(present);
+        loadParent(step.parent);
+        method.visitLdcInsn(step.field.key());
+        method.visitVarInsn(Opcodes.ALOAD, step.local);
+        loadConstant(step.constant, UnaryOperator.class);
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, SUPPORT, "valueNode",
+                "(" + OBJECT + Type.getDescriptor(UnaryOperator.class) + ")" + Type.getDescriptor(JsonNode.class),
+                false);
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, OBJECT_NODE, "set",
+                "(" + STRING + Type.getDescriptor(JsonNode.class) + ")" + Type.getDescriptor(JsonNode.class), false);
+        method.visitInsn(Opcodes.POP);
+        method.visitLabel(end);
+    }
+
+    private void writeNested(Step step, int target) {
+        read(step, target);
+        method.visitVarInsn(Opcodes.ASTORE, step.local);
+        Label end = new Label();
+        Label present = putNullUnlessPresent(step, end);
+        method.visitLabel(present);
+        Label declared = new Label();
+        method.visitVarInsn(Opcodes.ALOAD, step.local);
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(Object.class), "getClass",
+                "()" + Type.getDescriptor(Class.class), false);
+        loadConstant(step.constant, Class.class);
+        method.visitJumpInsn(Opcodes.IF_ACMPEQ, declared);
+        // A subclass has fields of its own: the whole document is transformed from the plans instead
+        method.visitVarInsn(Opcodes.ALOAD, INPUT);
+        method.visitFieldInsn(Opcodes.GETSTATIC, Type.getInternalName(PlanSource.class), "REFLECTION",
+                Type.getDescriptor(PlanSource.class));
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(JsonTransformer.class), "transformTree",
+                "(" + OBJECT + Type.getDescriptor(PlanSource.class) + ")" + Type.getDescriptor(ObjectNode.class),
+                false);
+        method.visitInsn(Opcodes.ARETURN);
+        method.visitLabel(declared);
+        writeSteps(step.fields, step.local);
+        method.visitLabel(end);
+    }
+
+    /**
+     * Puts {@code null} under the key of the step and jumps to {@code end} when its local is {@code null};
+     * returns the label to place where it is not.
+     */
+    private Label putNullUnlessPresent(Step step, Label end) {
+        Label present = new Label();
+        method.visitVarInsn(Opcodes.ALOAD, step.local);
+        method.visitJumpInsn(Opcodes.IFNONNULL, present);
+        loadParent(step.parent);
+        method.visitLdcInsn(step.field.key());
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, OBJECT_NODE, "putNull",
+                "(" + STRING + ")" + Type.getDescriptor(ObjectNode.class), false);
+        method.visitInsn(Opcodes.POP);
+        method.visitJumpInsn(Opcodes.GOTO, end);
+        return present;
+    }
+
+    /**
+     * Reads the field of the object in {@code target}, unwrapping an {@code Optional}, and returns the type
+     * left on the stack.
+     */
+    private Class<?> read(Step step, int target) {
+        loadConstant(step.reader, MethodHandle.class);
+        method.visitVarInsn(Opcodes.ALOAD, target);
+        Class<?> declared = step.field.optional() ? Optional.class : step.field.type();
+        Class<?> type = readType(declared);
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(MethodHandle.class), "invokeExact",
+                "(" + OBJECT + ")" + Type.getDescriptor(type), false);
+        if (step.field.optional()) {
+            Label absent = new Label();
+            method.visitInsn(Opcodes.DUP);
+            method.visitJumpInsn(Opcodes.IFNULL, absent);
+            method.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(Optional.class));
+            method.visitInsn(Opcodes.ACONST_NULL);
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(Optional.class), "orElse",
+                    "(" + OBJECT + ")" + OBJECT, false);
+            method.visitLabel(absent);
+            if (step.field.type() == String.class) {
+                method.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(String.class));
+                return String.class;
+            }
+            return Object.class;
+        }
+        return type;
+    }
+
+    private void loadParent(ParentNode parent) {
+        method.visitVarInsn(Opcodes.ALOAD, parent.local);
+        if (parent.local == ROOT) {
+            return;
+        }
+        Label resolved = new Label();
+        method.visitInsn(Opcodes.DUP);
+        method.visitJumpInsn(Opcodes.IFNONNULL, resolved);
+        method.visitInsn(Opcodes.POP);
+        method.visitVarInsn(Opcodes.ALOAD, ROOT);
+        loadConstant(parent.segments, String[].class);
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, SUPPORT, "objectAt",
+                "(" + Type.getDescriptor(ObjectNode.class) + Type.getDescriptor(String[].class) + ")"
+                        + Type.getDescriptor(ObjectNode.class), false);
+        method.visitInsn(Opcodes.DUP);
+        method.visitVarInsn(Opcodes.ASTORE, parent.local);
+        method.visitLabel(resolved);
+    }
+
+    private void loadConstant(int index, Class<?> type) {
+        method.visitLdcInsn(new ConstantDynamic(ConstantDescs.DEFAULT_NAME, Type.getDescriptor(type),
+                CLASS_DATA_AT, index));
+    }
+
+    /**
+     * The type a field is read as: primitives and strings as they are, anything else as {@code Object},
+     * since the written class cannot name model classes.
+     */
+    private static Class<?> readType(Class<?> type) {
+        return type.isPrimitive() || type == String.class ? type : Object.class;
+    }
+
+    /**
+     * One field to transform: the class data index of its reader, its parent object and, for containers and
+     * nested models, the local holding its value and the class data index of its value rules or declared
+     * class. Nested models carry the steps of their own fields.
+     */
+    private record Step(FieldPlan field, int reader, ParentNode parent, int local, int constant, List<Step> fields) {
+    }
+
+    /**
+     * A parent object of some fields: the local it is resolved into and the class data index of its path.
+     */
+    private record ParentNode(int local, int segments) {
+    }
+
+    /**
+     * A model that the written code cannot transform like the plans would; it is transformed from its plans.
+     */
+    static final class UnsupportedModelException extends RuntimeException {
+
+        UnsupportedModelException(String message) {
+            super(message);
+        }
+    }
+}
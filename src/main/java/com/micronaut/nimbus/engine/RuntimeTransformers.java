@@ -0,0 +1,70 @@
+package com.micronaut.nimbus.engine;
+
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Transformers generated at run time for models without a build-time one, such as those of plugins loaded
+ * after the build. The transformer of a class is written by {@link RuntimeTransformerWriter} on first use
+ * and defined as a hidden class; it is held by a {@link ClassValue} of the model class and references the
+ * model only through its class data, so it becomes unreachable, and its class unloadable, together with the
+ * model's class loader.
+ * <p>
+ * Enabled by {@code nimbus.transformer.runtime-generation}, never in a native image. Models the writer does
+ * not support are transformed from their plans, as before.
+ */
+@Context
+public final class RuntimeTransformers {
+
+    private static final Logger log = LoggerFactory.getLogger(RuntimeTransformers.class);
+
+    private static final ClassValue<GeneratedTransformer<Object>> TRANSFORMERS = new ClassValue<>() {
+        @Override
+        protected GeneratedTransformer<Object> computeValue(Class<?> type) {
+            return define(type);
+        }
+    };
+
+    private static volatile boolean enabled = !TransformPlan.NATIVE_IMAGE;
+
+    public RuntimeTransformers(@Value("${nimbus.transformer.runtime-generation:true}") boolean enabled) {
+        enable(enabled);
+    }
+
+    public static void enable(boolean enabled) {
+        RuntimeTransformers.enabled = enabled && !TransformPlan.NATIVE_IMAGE;
+    }
+
+    /**
+     * Returns the runtime transformer of the class, generating it on first use, or {@code null} when
+     * generation is disabled or the class is not supported.
+     */
+    static GeneratedTransformer<Object> find(Class<?> type) {
+        return enabled ? TRANSFORMERS.get(type) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static GeneratedTransformer<Object> define(Class<?> type) {
+        try {
+            RuntimeTransformerWriter writer = new RuntimeTransformerWriter(type);
+            Class<?> transformer = MethodHandles.lookup()
+                    .defineHiddenClassWithClassData(writer.write(), writer.classData(), true)
+                    .lookupClass();
+            log.debug("Generated a runtime transformer for {}", type.getName());
+            return (GeneratedTransformer<Object>) transformer.getDeclaredConstructor().newInstance();
+        } catch (RuntimeTransformerWriter.UnsupportedModelException e) {
+            log.debug("No runtime transformer for {}: {}", type.getName(), e.getMessage());
+        } catch (IllegalAccessException e) {
+            // Transforming from the plans reports it
+            log.debug("No runtime transformer for {}", type.getName(), e);
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            log.warn("Failed to generate a runtime transformer for {}, transforming it from its plans",
+                    type.getName(), e);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,99 @@
+package com.micronaut.nimbus.engine;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes the transformed document straight to a {@link JsonGenerator}, following the {@link OutputLayout}
+ * of the input class: the model is read once into the layout's value slots, then every output object is
+ * opened and closed exactly once. No intermediate tree or String is built.
+ */
+@Singleton
+public class StreamingJsonTransformer implements Transformer {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingJsonTransformer.class);
+    private static final ObjectMapper mapper = TransformSupport.mapper();
+
+    private final JsonTransformer treeTransformer;
+
+    public StreamingJsonTransformer(JsonTransformer treeTransformer) {
+        this.treeTransformer = treeTransformer;
+    }
+
+    @Override
+    public String id() {
+        return "streaming";
+    }
+
+    /**
+     * Resolves the output layout of the class and, for a layout that cannot be streamed, prepares the tree
+     * engine it falls back to.
+     */
+    @Override
+    public void prepare(Class<?> type) throws IllegalAccessException {
+        if (!OutputLayout.of(type).streamable()) {
+            treeTransformer.prepare(type);
+        }
+    }
+
+    /**
+     * Renders the document as a String; only useful where the engine must return a value, prefer
+     * {@link #write} or the generator variant.
+     */
+    @Override
+    public String transform(Object input) throws IllegalAccessException {
+        StringWriter out = new StringWriter();
+        try {
+            transform(input, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void write(Object input, OutputStream out) throws IOException, IllegalAccessException {
+        transform(input, out);
+    }
+
+    @Override
+    public void write(Object input, JsonGenerator generator) throws IOException, IllegalAccessException {
+        transform(input, generator);
+    }
+
+    public void transform(Object input, OutputStream out) throws IOException, IllegalAccessException {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            transform(input, generator);
+        }
+    }
+
+    public void transform(Object input, Writer out) throws IOException, IllegalAccessException {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            transform(input, generator);
+        }
+    }
+
+    public void transform(Object input, JsonGenerator generator) throws IOException, IllegalAccessException {
+        TransformEvent event = TransformProfiler.beginTransform();
+        OutputLayout layout = OutputLayout.of(input.getClass());
+        Object[] values = layout.streamable() ? layout.readValues(input) : null;
+        if (values == null) {
+            log.debug("Writing {} through the tree engine: {}", layout.type().getName(),
+                    layout.streamable() ? "a nested model is of a subclass" : layout.notStreamableReason());
+            mapper.writeTree(generator, treeTransformer.transform(input));
+        } else {
+            layout.write(generator, values);
+        }
+        TransformProfiler.endTransform(event, id(), input.getClass(), false);
+    }
+}
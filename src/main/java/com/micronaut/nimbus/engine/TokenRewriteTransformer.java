@@ -0,0 +1,348 @@
+package com.micronaut.nimbus.engine;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import jakarta.inject.Singleton;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rewrites a JSON document of a model class into its transformed form directly from the parser's token
+ * stream, without binding the model. The {@link OutputLayout} of the class is compiled into a rewrite
+ * program mapping each input key to a value slot: keys are moved to their output path, string values get
+ * the prefix and case rules, and other values are copied through. Unknown keys are skipped, and keys missing
+ * from the input get the default value of their field, as binding would.
+ * <p>
+ * Output objects are grouped by the layout, so values are held per slot until the root object is closed;
+ * string leaves are therefore copied out of the parser's text buffer, which the next token overwrites, and get
+ * their rules when the layout writes them. Arrays and objects found in leaf fields are kept as token buffers.
+ * Collection, array and map fields are rewritten into their buffer element by element, model elements with
+ * the program of the element type.
+ */
+@Singleton
+public class TokenRewriteTransformer {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRewriteTransformer.class);
+    private static final ObjectMapper mapper = TransformSupport.mapper();
+
+    /**
+     * Slot value of a nested model that is present in the input.
+     */
+    private static final Object PRESENT = new Object();
+
+    /**
+     * Chunks of a streamed body requested ahead of the parser.
+     */
+    private static final int BODY_PREFETCH = 4;
+
+    private static final ClassValue<RewriteProgram> PROGRAMS = new ClassValue<>() {
+        @Override
+        protected RewriteProgram computeValue(Class<?> type) {
+            try {
+                return new RewriteProgram(OutputLayout.of(type));
+            } catch (IllegalAccessException e) {
+                throw new PlanResolutionException(e);
+            }
+        }
+    };
+
+    private final StreamingJsonTransformer streamingTransformer;
+
+    public TokenRewriteTransformer(StreamingJsonTransformer streamingTransformer) {
+        this.streamingTransformer = streamingTransformer;
+    }
+
+    public void transform(Class<?> type, InputStream in, OutputStream out) throws IOException, IllegalAccessException {
+        try (JsonParser parser = mapper.getFactory().createParser(in);
+             JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            transform(type, parser, generator);
+        }
+    }
+
+    public void transform(Class<?> type, byte[] in, OutputStream out) throws IOException, IllegalAccessException {
+        try (JsonParser parser = mapper.getFactory().createParser(in);
+             JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            transform(type, parser, generator);
+        }
+    }
+
+    /**
+     * Rewrites the body into a character stream, for callers that are handed a {@link Writer} rather than the
+     * response bytes.
+     */
+    public void transform(Class<?> type, byte[] in, Writer out) throws IOException, IllegalAccessException {
+        try (JsonParser parser = mapper.getFactory().createParser(in);
+             JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            transform(type, parser, generator);
+        }
+    }
+
+    /**
+     * Rewrites a body that arrives in chunks, parsing each chunk as it is received. Must not be called on an
+     * event loop; see {@link ChunkedJsonParser}.
+     */
+    public void transform(Class<?> type, Publisher<byte[]> in, OutputStream out)
+            throws IOException, IllegalAccessException {
+        try (JsonParser parser = ChunkedJsonParser.subscribe(in, BODY_PREFETCH);
+             JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            transform(type, parser, generator);
+        }
+    }
+
+    public void transform(Class<?> type, JsonParser parser, JsonGenerator generator)
+            throws IOException, IllegalAccessException {
+        TransformEvent event = TransformProfiler.beginTransform();
+        RewriteProgram program = program(type);
+        if (!program.layout.streamable()) {
+            log.debug("Binding {} before transforming it: {}", type.getName(), program.layout.notStreamableReason());
+            streamingTransformer.transform(mapper.readValue(parser, type), generator);
+        } else {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object for " + type.getName() + " but found " + parser.currentToken());
+            }
+            Object[] values = program.newValues();
+            values[0] = PRESENT;
+            ValueTransforms transforms = new ValueTransforms();
+            program.readObject(parser, 0, values, transforms);
+            program.layout.write(generator, values, transforms);
+        }
+        TransformProfiler.endTransform(event, "rewrite", type, false);
+    }
+
+    public static RewriteProgram program(Class<?> type) throws IllegalAccessException {
+        try {
+            return PROGRAMS.get(type);
+        } catch (PlanResolutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * The rewrite rules of one model class: for every object slot of its layout, the slot of each input key.
+     */
+    public static final class RewriteProgram {
+
+        private final OutputLayout layout;
+        private final Map<String, Integer>[] keys;
+        private final int[][] children;
+        private final Object[] defaults;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private RewriteProgram(OutputLayout layout) {
+            this.layout = layout;
+            int slots = layout.slotCount();
+            this.keys = new Map[slots];
+            this.defaults = new Object[slots];
+            int[] childCount = new int[slots];
+            for (int slot = 1; slot < slots; slot++) {
+                int parent = layout.slotParent(slot);
+                if (keys[parent] == null) {
+                    keys[parent] = new HashMap<>();
+                }
+                keys[parent].put(layout.slotField(slot).name(), slot);
+                childCount[parent]++;
+
+                Class<?> fieldType = layout.slotField(slot).type();
+                defaults[slot] = fieldType.isPrimitive() ? Array.get(Array.newInstance(fieldType, 1), 0) : null;
+            }
+            this.children = new int[slots][];
+            for (int slot = 0; slot < slots; slot++) {
+                children[slot] = new int[childCount[slot]];
+                childCount[slot] = 0;
+            }
+            for (int slot = 1; slot < slots; slot++) {
+                int parent = layout.slotParent(slot);
+                children[parent][childCount[parent]++] = slot;
+            }
+        }
+
+        public OutputLayout layout() {
+            return layout;
+        }
+
+        Object[] newValues() {
+            Object[] values = new Object[layout.slotCount()];
+            Arrays.fill(values, OutputLayout.ABSENT);
+            return values;
+        }
+
+        /**
+         * Reads the fields of the object the parser is positioned on, up to and including its END_OBJECT.
+         */
+        void readObject(JsonParser parser, int owner, Object[] values, ValueTransforms transforms)
+                throws IOException, IllegalAccessException {
+            Map<String, Integer> ownerKeys = keys[owner];
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                Integer slot = ownerKeys == null ? null : ownerKeys.get(parser.currentName());
+                token = parser.nextToken();
+                if (slot == null) {
+                    parser.skipChildren();
+                    continue;
+                }
+                values[slot] = readValue(parser, token, slot, values, transforms);
+            }
+            if (token != JsonToken.END_OBJECT) {
+                throw new IOException("Unexpected token " + token + " in " + layout.type().getName());
+            }
+            for (int slot : children[owner]) {
+                if (values[slot] == OutputLayout.ABSENT) {
+                    values[slot] = defaults[slot];
+                }
+            }
+        }
+
+        private Object readValue(JsonParser parser, JsonToken token, int slot, Object[] values,
+                                 ValueTransforms transforms) throws IOException, IllegalAccessException {
+            FieldPlan field = layout.slotField(slot);
+            if (token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if ((token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT) && isContainer(field.kind())) {
+                TokenBuffer buffer = new TokenBuffer(parser);
+                rewriteContainer(parser, token, buffer, field.genericElementType(), field, transforms);
+                return buffer;
+            }
+            if (field.kind() == FieldPlan.Kind.NESTED) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected an object for " + field.name() + " but found " + token);
+                }
+                readObject(parser, slot, values, transforms);
+                return PRESENT;
+            }
+            // The layout applies the value rules to strings when it writes them; the string of a field of another
+            // type is kept as a token, so that it is written as read like the other engines do. The text has to be
+            // copied either way, as the slot outlives the parser's buffer
+            if (token == JsonToken.VALUE_STRING && (!field.hasValueRules() || field.type() == String.class)) {
+                return parser.getText();
+            }
+            return switch (token) {
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> readNumber(parser, field.type());
+                case VALUE_TRUE -> Boolean.TRUE;
+                case VALUE_FALSE -> Boolean.FALSE;
+                default -> {
+                    TokenBuffer buffer = new TokenBuffer(parser);
+                    buffer.copyCurrentStructure(parser);
+                    yield buffer;
+                }
+            };
+        }
+
+        private static boolean isContainer(FieldPlan.Kind kind) {
+            return kind == FieldPlan.Kind.COLLECTION || kind == FieldPlan.Kind.PRIMITIVE_ARRAY
+                    || kind == FieldPlan.Kind.MAP;
+        }
+
+        /**
+         * Copies the array or object the parser is positioned on, rewriting every element as a value of
+         * {@code elementType}.
+         */
+        private static void rewriteContainer(JsonParser parser, JsonToken token, JsonGenerator out,
+                                             Type elementType, FieldPlan field, ValueTransforms transforms)
+                throws IOException, IllegalAccessException {
+            if (token == JsonToken.START_ARRAY) {
+                out.writeStartArray();
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    rewriteElement(parser, token, out, elementType, field, transforms);
+                }
+                out.writeEndArray();
+            } else {
+                out.writeStartObject();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    out.writeFieldName(parser.currentName());
+                    rewriteElement(parser, parser.nextToken(), out, elementType, field, transforms);
+                }
+                out.writeEndObject();
+            }
+        }
+
+        /**
+         * Rewrites one element: strings get the value rules of the field, applied on the parser's text
+         * buffer, numbers the declared element type, and objects of a model type are rewritten with the program
+         * of that type. Objects of any other type are maps, and arrays and maps are rewritten with the element
+         * type they declare, so that models inside nested containers are found.
+         */
+        private static void rewriteElement(JsonParser parser, JsonToken token, JsonGenerator out, Type type,
+                                           FieldPlan field, ValueTransforms transforms)
+                throws IOException, IllegalAccessException {
+            Class<?> rawType = FieldPlan.rawType(type);
+            switch (token) {
+                case VALUE_STRING -> {
+                    if (field.hasValueRules()) {
+                        transforms.writeString(out, field, parser);
+                    } else {
+                        out.writeString(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    }
+                }
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT ->
+                        TransformSupport.writeValue(out, readNumber(parser, rawType));
+                case START_ARRAY ->
+                        rewriteContainer(parser, token, out, FieldPlan.elementTypeOf(type), field, transforms);
+                case START_OBJECT -> {
+                    if (FieldPlan.kindOf(rawType) == FieldPlan.Kind.NESTED) {
+                        rewriteModel(parser, out, rawType, transforms);
+                    } else {
+                        rewriteContainer(parser, token, out, FieldPlan.elementTypeOf(type), field, transforms);
+                    }
+                }
+                default -> out.copyCurrentEvent(parser);
+            }
+        }
+
+        private static void rewriteModel(JsonParser parser, JsonGenerator out, Class<?> type,
+                                         ValueTransforms transforms) throws IOException, IllegalAccessException {
+            RewriteProgram program = program(type);
+            if (!program.layout.streamable()) {
+                Object element = mapper.readValue(parser, type);
+                mapper.writeTree(out, JsonTransformer.transformModel(element, PlanSource.REFLECTION));
+                return;
+            }
+            Object[] values = program.newValues();
+            values[0] = PRESENT;
+            program.readObject(parser, 0, values, transforms);
+            program.layout.write(out, values, transforms);
+        }
+
+        /**
+         * Reads a number as the declared type of its field, so that a {@code double} given as {@code 1} is
+         * written as {@code 1.0} like the other engines do.
+         */
+        private static Object readNumber(JsonParser parser, Class<?> type) throws IOException {
+            if (type == double.class || type == Double.class) {
+                return parser.getDoubleValue();
+            } else if (type == int.class || type == Integer.class) {
+                return parser.getIntValue();
+            } else if (type == long.class || type == Long.class) {
+                return parser.getLongValue();
+            } else if (type == float.class || type == Float.class) {
+                return parser.getFloatValue();
+            } else if (type == short.class || type == Short.class) {
+                return parser.getShortValue();
+            } else if (type == byte.class || type == Byte.class) {
+                return parser.getByteValue();
+            } else if (type == BigDecimal.class) {
+                return parser.getDecimalValue();
+            } else if (type == BigInteger.class) {
+                return parser.getBigIntegerValue();
+            }
+            return parser.getNumberValue();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.micronaut.nimbus.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One transform of a model by an engine, from the start of the transform to its end.
+ */
+@Name("com.micronaut.nimbus.Transform")
+@Label("Transform")
+@Category({"Nimbus", "Transform"})
+@Description("Transform of a model by an engine")
+@StackTrace(false)
+final class TransformEvent extends jdk.jfr.Event {
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Model")
+    String model;
+
+    @Label("Sampled")
+    @Description("Whether the fields of this transform were profiled")
+    boolean sampled;
+}
@@ -0,0 +1,241 @@
+package com.micronaut.nimbus.engine;
+
+import com.micronaut.nimbus.annotations.JsonCleanPrefix;
+import com.micronaut.nimbus.annotations.JsonNestedTransform;
+import com.micronaut.nimbus.annotations.JsonRename;
+import com.micronaut.nimbus.annotations.JsonToLower;
+import com.micronaut.nimbus.annotations.JsonToUpper;
+import io.micronaut.core.beans.BeanIntrospection;
+import io.micronaut.core.beans.BeanIntrospector;
+import io.micronaut.core.beans.BeanProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Per-class transformation plan shared by the engines. Field discovery, annotation lookup, path splitting
+ * and accessor creation happen once per class; the result is cached in a {@link ClassValue} so that plans
+ * are released together with the class.
+ * <p>
+ * Plans come from two sources: {@link #of(Class)} reads the declared fields reflectively, while
+ * {@link #introspected(Class)} uses the compile-time {@link BeanIntrospection} that {@code @Serdeable} and
+ * {@code @Introspected} models get, and needs no reflection at all.
+ * <p>
+ * In a GraalVM native image {@link #of(Class)} returns the introspected plan whenever the class has one, so
+ * every engine runs without reflection there. Classes without an introspection are still read reflectively,
+ * using the reflection metadata the transformer processor generates for annotated models.
+ */
+public final class TransformPlan {
+
+    private static final Logger log = LoggerFactory.getLogger(TransformPlan.class);
+
+    /**
+     * Set by GraalVM while building and running a native image.
+     */
+    static final boolean NATIVE_IMAGE = System.getProperty("org.graalvm.nativeimage.imagecode") != null;
+
+    private static final ClassValue<TransformPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected TransformPlan computeValue(Class<?> type) {
+            try {
+                return new TransformPlan(type);
+            } catch (IllegalAccessException e) {
+                throw new PlanResolutionException(e);
+            }
+        }
+    };
+
+    private static final ClassValue<TransformPlan> INTROSPECTED_PLANS = new ClassValue<>() {
+        @Override
+        protected TransformPlan computeValue(Class<?> type) {
+            try {
+                return introspect(type);
+            } catch (IllegalAccessException e) {
+                throw new PlanResolutionException(e);
+            }
+        }
+    };
+
+    private final Class<?> type;
+    private final List<FieldPlan> fields;
+    private final PathTrie trie;
+
+    private TransformPlan(Class<?> type, List<FieldPlan> fields) {
+        this.type = type;
+        this.fields = List.copyOf(fields);
+        this.trie = new PathTrie(this.fields);
+    }
+
+    private TransformPlan(Class<?> type) throws IllegalAccessException {
+        PlanResolutionEvent event = TransformProfiler.beginPlan();
+        this.type = type;
+        List<FieldPlan> resolved = new ArrayList<>();
+        for (Class<?> declaring : hierarchy(type)) {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declaring, MethodHandles.lookup());
+            for (Field field : declaring.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                    resolved.add(new FieldPlan(field, accessor(lookup, declaring, field)));
+                }
+            }
+        }
+        this.fields = List.copyOf(resolved);
+        this.trie = new PathTrie(fields);
+        TransformProfiler.endPlan(event, type, "reflection", fields.size());
+        if (NATIVE_IMAGE && fields.isEmpty()) {
+            log.warn("No fields found for {} in the native image; give it a bean introspection or reflection metadata",
+                    type.getName());
+        }
+        log.debug("Resolved transform plan for {}: {}", type.getName(), fields);
+    }
+
+    /**
+     * Returns the plan of the given class, resolving it on first use. In a native image this is the
+     * introspected plan when the class has one.
+     *
+     * @throws IllegalAccessException if the fields of the class cannot be read
+     */
+    public static TransformPlan of(Class<?> type) throws IllegalAccessException {
+        return NATIVE_IMAGE ? introspected(type) : reflective(type);
+    }
+
+    private static TransformPlan reflective(Class<?> type) throws IllegalAccessException {
+        try {
+            return PLANS.get(type);
+        } catch (PlanResolutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Returns the plan of the given class built from its bean introspection, or the reflective plan when the
+     * class has none.
+     *
+     * @throws IllegalAccessException if the class has no introspection and its fields cannot be read
+     */
+    public static TransformPlan introspected(Class<?> type) throws IllegalAccessException {
+        try {
+            return INTROSPECTED_PLANS.get(type);
+        } catch (PlanResolutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    public Class<?> type() {
+        return type;
+    }
+
+    public List<FieldPlan> fields() {
+        return fields;
+    }
+
+    PathTrie trie() {
+        return trie;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static TransformPlan introspect(Class<?> type) throws IllegalAccessException {
+        PlanResolutionEvent event = TransformProfiler.beginPlan();
+        Optional<BeanIntrospection<Object>> introspection = BeanIntrospector.SHARED.findIntrospection((Class) type);
+        if (introspection.isEmpty()) {
+            // Once per class, as plans are cached: in a native image the class must then be registered for reflection
+            log.warn("No bean introspection for {}, resolving its plan reflectively; annotate it with @Introspected",
+                    type.getName());
+            return reflective(type);
+        }
+
+        List<FieldPlan> resolved = new ArrayList<>();
+        for (BeanProperty<Object, Object> property : introspection.get().getBeanProperties()) {
+            if (property.isWriteOnly()) {
+                continue;
+            }
+            resolved.add(new FieldPlan(
+                    property.getName(),
+                    property.getType(),
+                    property.asArgument().asType(),
+                    property.stringValue(JsonNestedTransform.class, "path").orElse(
+                            property.hasAnnotation(JsonNestedTransform.class) ? "" : null),
+                    property.stringValue(JsonRename.class, "name").orElse(null),
+                    property.stringValue(JsonCleanPrefix.class, "prefix").orElse(null),
+                    property.hasAnnotation(JsonToUpper.class) ? FieldPlan.CaseRule.UPPER
+                            : property.hasAnnotation(JsonToLower.class) ? FieldPlan.CaseRule.LOWER
+                            : FieldPlan.CaseRule.NONE,
+                    property::get));
+        }
+        TransformPlan plan = new TransformPlan(type, resolved);
+        TransformProfiler.endPlan(event, type, "introspection", resolved.size());
+        log.debug("Resolved introspected transform plan for {}: {}", type.getName(), plan.fields);
+        return plan;
+    }
+
+    private static FieldAccessor accessor(MethodHandles.Lookup lookup, Class<?> type, Field field)
+            throws IllegalAccessException {
+        Method getter = findGetter(type, field);
+        // Native images cannot spin lambda classes at run time, a field handle is used there instead
+        if (getter != null && !NATIVE_IMAGE) {
+            try {
+                MethodHandle handle = lookup.unreflect(getter);
+                CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                        MethodType.methodType(FieldAccessor.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        handle,
+                        MethodType.methodType(handle.type().wrap().returnType(), type));
+                return (FieldAccessor) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                log.debug("Falling back to a field handle for {}.{}: {}", type.getName(), field.getName(), e.toString());
+            }
+        }
+
+        MethodHandle handle = lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+        return target -> {
+            try {
+                return handle.invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * The class and its superclasses below the JDK ones, superclasses first: the classes whose fields the
+     * reflective plan reads, in the order it reads them.
+     */
+    static List<Class<?>> hierarchy(Class<?> type) {
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> current = type; current != null && !current.getName().startsWith("java.");
+             current = current.getSuperclass()) {
+            hierarchy.add(0, current);
+        }
+        return hierarchy;
+    }
+
+    /**
+     * The getter the reflective accessor of a field reads through, or {@code null} when it reads the field.
+     */
+    static Method findGetter(Class<?> type, Field field) {
+        String suffix = Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+        for (String name : new String[]{"get" + suffix, "is" + suffix}) {
+            try {
+                Method method = type.getDeclaredMethod(name);
+                if (method.getReturnType() == field.getType() && !Modifier.isStatic(method.getModifiers())) {
+                    return method;
+                }
+            } catch (NoSuchMethodException ignored) {
+                // try the next candidate
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,101 @@
+package com.micronaut.nimbus.engine;
+
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Value;
+import jdk.jfr.EventType;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Flight Recorder instrumentation of the engines. Every transform and every plan resolution is recorded as
+ * an event; these cost next to nothing unless a recording enables them. In addition, one in
+ * {@code nimbus.profiling.sample-rate} transforms of the tree engines is sampled and records an event per
+ * field, with the field's annotations and the time spent on it. Sampling is off when the rate is {@code 0}
+ * and is skipped while no recording has the field event enabled.
+ * <p>
+ * Engines are not beans everywhere they are used, so the rate is held statically and set when the
+ * application context starts.
+ */
+@Context
+public final class TransformProfiler {
+
+    private static final EventType FIELD_EVENTS = EventType.getEventType(FieldTransformEvent.class);
+
+    private static volatile int sampleRate;
+
+    public TransformProfiler(@Value("${nimbus.profiling.sample-rate:0}") int sampleRate) {
+        sampleEvery(sampleRate);
+    }
+
+    /**
+     * Profiles the fields of one in {@code rate} transforms, or none when {@code rate} is {@code 0}.
+     */
+    public static void sampleEvery(int rate) {
+        if (rate < 0) {
+            throw new IllegalArgumentException("nimbus.profiling.sample-rate must not be negative");
+        }
+        sampleRate = rate;
+    }
+
+    public static int sampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Decides whether the transform about to start records its fields.
+     */
+    static boolean sample() {
+        int rate = sampleRate;
+        return rate > 0 && FIELD_EVENTS.isEnabled() && ThreadLocalRandom.current().nextInt(rate) == 0;
+    }
+
+    static TransformEvent beginTransform() {
+        TransformEvent event = new TransformEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endTransform(TransformEvent event, String engine, Class<?> model, boolean sampled) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.engine = engine;
+            event.model = model.getName();
+            event.sampled = sampled;
+            event.commit();
+        }
+    }
+
+    static FieldTransformEvent beginField() {
+        FieldTransformEvent event = new FieldTransformEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endField(FieldTransformEvent event, String engine, Class<?> model, FieldPlan field) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.engine = engine;
+            event.model = model.getName();
+            event.field = field.name();
+            event.annotations = field.annotations();
+            event.kind = field.kind().name();
+            event.commit();
+        }
+    }
+
+    static PlanResolutionEvent beginPlan() {
+        PlanResolutionEvent event = new PlanResolutionEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endPlan(PlanResolutionEvent event, Class<?> model, String source, int fields) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.model = model.getName();
+            event.source = source;
+            event.fields = fields;
+            event.commit();
+        }
+    }
+}
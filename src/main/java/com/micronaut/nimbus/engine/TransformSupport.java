@@ -0,0 +1,294 @@
+package com.micronaut.nimbus.engine;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Value rules and node helpers shared by the reflective engines and the generated transformers.
+ */
+public final class TransformSupport {
+
+    private static final ObjectMapper MAPPER = configure(new ObjectMapper());
+
+    private TransformSupport() {
+    }
+
+    /**
+     * A plain Jackson mapper for the engines' own parsing and tree writing; it never closes the streams
+     * it is given. Unknown properties are skipped when binding, as Micronaut Serialization does for request
+     * bodies, so a body is accepted or rejected alike whichever path binds it.
+     */
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    /**
+     * Applies the settings of {@link #mapper()} to a mapper of another data format.
+     */
+    static ObjectMapper configure(ObjectMapper mapper) {
+        return mapper
+                .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+                .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    public static String cleanPrefix(String value, String prefix) {
+        return value != null && value.startsWith(prefix) ? value.substring(prefix.length()) : value;
+    }
+
+    /**
+     * Upper-cases the value independently of the default locale; see {@link ValueTransforms#toUpperCase}.
+     */
+    public static String toUpperCase(String value) {
+        return ValueTransforms.toUpperCase(value);
+    }
+
+    /**
+     * Lower-cases the value independently of the default locale; see {@link ValueTransforms#toLowerCase}.
+     */
+    public static String toLowerCase(String value) {
+        return ValueTransforms.toLowerCase(value);
+    }
+
+    /**
+     * Builds the transformed tree of a model from its reflective plans. Generated transformers hand over to it
+     * when a nested model is of a subclass of its declared type, whose fields they do not know.
+     *
+     * @throws IllegalAccessException if the fields of the model or of a nested model cannot be read
+     */
+    public static ObjectNode transformTree(Object input) throws IllegalAccessException {
+        return JsonTransformer.transformTree(input, PlanSource.REFLECTION);
+    }
+
+    /**
+     * Returns the object node at the given path below {@code root}, creating missing objects on the way.
+     */
+    public static ObjectNode objectAt(ObjectNode root, String[] segments) {
+        ObjectNode current = root;
+        for (String segment : segments) {
+            current = child(current, segment);
+        }
+        return current;
+    }
+
+    /**
+     * Returns the object under {@code key}, creating it when missing.
+     */
+    public static ObjectNode child(ObjectNode node, String key) {
+        JsonNode child = node.get(key);
+        return child == null ? node.putObject(key) : (ObjectNode) child;
+    }
+
+    /**
+     * Writes a leaf value with the matching node type, so that the result is the same tree as the one
+     * built by the generated transformers.
+     */
+    public static void putValue(ObjectNode node, String key, Object value) {
+        if (value == null) {
+            node.putNull(key);
+        } else if (value instanceof String string) {
+            node.put(key, string);
+        } else if (value instanceof Integer number) {
+            node.put(key, number.intValue());
+        } else if (value instanceof Long number) {
+            node.put(key, number.longValue());
+        } else if (value instanceof Double number) {
+            node.put(key, number.doubleValue());
+        } else if (value instanceof Boolean bool) {
+            node.put(key, bool.booleanValue());
+        } else if (value instanceof Float number) {
+            node.put(key, number.floatValue());
+        } else if (value instanceof Short number) {
+            node.put(key, number.shortValue());
+        } else if (value instanceof Byte number) {
+            node.put(key, number.intValue());
+        } else if (value instanceof BigDecimal number) {
+            node.put(key, number);
+        } else if (value instanceof BigInteger number) {
+            node.put(key, number);
+        } else {
+            node.putPOJO(key, value);
+        }
+    }
+
+    /**
+     * Builds the node of a collection, array, map or {@code Optional} value. String elements get the given
+     * value rules, model elements are transformed as documents of their own, with their generated transformer
+     * when there is one.
+     *
+     * @throws IllegalAccessException if the fields of a model element cannot be read
+     */
+    public static JsonNode valueNode(Object value, UnaryOperator<String> rules) throws IllegalAccessException {
+        return valueNode(value, rules, PlanSource.REFLECTION);
+    }
+
+    static JsonNode valueNode(Object value, UnaryOperator<String> rules, PlanSource plans)
+            throws IllegalAccessException {
+        JsonNodeFactory nodes = JsonNodeFactory.instance;
+        if (value == null) {
+            return nodes.nullNode();
+        } else if (value instanceof String string) {
+            return nodes.textNode(rules.apply(string));
+        } else if (value instanceof Optional<?> optional) {
+            return valueNode(optional.orElse(null), rules, plans);
+        } else if (value instanceof Collection<?> collection) {
+            if (ParallelTransforms.forks(collection.size())) {
+                return nodes.arrayNode(collection.size()).addAll(ParallelTransforms.transformAll(
+                        collection.toArray(), element -> valueNode(element, rules, plans)));
+            }
+            ArrayNode array = nodes.arrayNode(collection.size());
+            for (Object element : collection) {
+                array.add(valueNode(element, rules, plans));
+            }
+            return array;
+        } else if (value instanceof Object[] elements) {
+            if (ParallelTransforms.forks(elements.length)) {
+                return nodes.arrayNode(elements.length).addAll(ParallelTransforms.transformAll(
+                        elements, element -> valueNode(element, rules, plans)));
+            }
+            ArrayNode array = nodes.arrayNode(elements.length);
+            for (Object element : elements) {
+                array.add(valueNode(element, rules, plans));
+            }
+            return array;
+        } else if (value instanceof Map<?, ?> map) {
+            ObjectNode object = nodes.objectNode();
+            if (ParallelTransforms.forks(map.size())) {
+                Map.Entry<?, ?>[] entries = map.entrySet().toArray(new Map.Entry<?, ?>[0]);
+                List<JsonNode> values = ParallelTransforms.transformAll(entries,
+                        entry -> valueNode(((Map.Entry<?, ?>) entry).getValue(), rules, plans));
+                for (int i = 0; i < entries.length; i++) {
+                    object.set(String.valueOf(entries[i].getKey()), values.get(i));
+                }
+                return object;
+            }
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                object.set(String.valueOf(entry.getKey()), valueNode(entry.getValue(), rules, plans));
+            }
+            return object;
+        } else if (value.getClass().isArray()) {
+            return primitiveArrayNode(value);
+        } else if (FieldPlan.isLeafType(value.getClass())) {
+            return leafNode(value);
+        }
+        return JsonTransformer.transformModel(value, plans);
+    }
+
+    private static JsonNode leafNode(Object value) {
+        JsonNodeFactory nodes = JsonNodeFactory.instance;
+        if (value instanceof Integer number) {
+            return nodes.numberNode(number.intValue());
+        } else if (value instanceof Long number) {
+            return nodes.numberNode(number.longValue());
+        } else if (value instanceof Double number) {
+            return nodes.numberNode(number.doubleValue());
+        } else if (value instanceof Boolean bool) {
+            return nodes.booleanNode(bool);
+        } else if (value instanceof Float number) {
+            return nodes.numberNode(number.floatValue());
+        } else if (value instanceof Short number) {
+            return nodes.numberNode(number.shortValue());
+        } else if (value instanceof Byte number) {
+            return nodes.numberNode(number.intValue());
+        } else if (value instanceof BigDecimal number) {
+            return nodes.numberNode(number);
+        } else if (value instanceof BigInteger number) {
+            return nodes.numberNode(number);
+        } else if (value instanceof Character character) {
+            return nodes.textNode(character.toString());
+        }
+        return nodes.pojoNode(value);
+    }
+
+    /**
+     * Adds the elements of a primitive array straight from the array; {@code char[]} becomes a string,
+     * as in Jackson's own serialization.
+     */
+    private static JsonNode primitiveArrayNode(Object value) {
+        JsonNodeFactory nodes = JsonNodeFactory.instance;
+        if (value instanceof char[] chars) {
+            return nodes.textNode(new String(chars));
+        }
+        ArrayNode array = nodes.arrayNode(Array.getLength(value));
+        if (value instanceof int[] ints) {
+            for (int element : ints) {
+                array.add(element);
+            }
+        } else if (value instanceof long[] longs) {
+            for (long element : longs) {
+                array.add(element);
+            }
+        } else if (value instanceof double[] doubles) {
+            for (double element : doubles) {
+                array.add(element);
+            }
+        } else if (value instanceof float[] floats) {
+            for (float element : floats) {
+                array.add(element);
+            }
+        } else if (value instanceof short[] shorts) {
+            for (short element : shorts) {
+                array.add(element);
+            }
+        } else if (value instanceof byte[] bytes) {
+            for (byte element : bytes) {
+                array.add(element);
+            }
+        } else if (value instanceof boolean[] booleans) {
+            for (boolean element : booleans) {
+                array.add(element);
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Writes a leaf value to a generator; the streaming counterpart of {@link #putValue}.
+     */
+    public static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String string) {
+            generator.writeString(string);
+        } else if (value instanceof Integer number) {
+            generator.writeNumber(number.intValue());
+        } else if (value instanceof Long number) {
+            generator.writeNumber(number.longValue());
+        } else if (value instanceof Double number) {
+            generator.writeNumber(number.doubleValue());
+        } else if (value instanceof Boolean bool) {
+            generator.writeBoolean(bool);
+        } else if (value instanceof Float number) {
+            generator.writeNumber(number.floatValue());
+        } else if (value instanceof Short number) {
+            generator.writeNumber(number.shortValue());
+        } else if (value instanceof Byte number) {
+            generator.writeNumber(number.intValue());
+        } else if (value instanceof BigDecimal number) {
+            generator.writeNumber(number);
+        } else if (value instanceof BigInteger number) {
+            generator.writeNumber(number);
+        } else if (value instanceof TokenBuffer buffer) {
+            buffer.serialize(generator);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.micronaut.nimbus.engine;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A transformation engine. Every engine applies the same annotation rules and produces the same document;
+ * they differ in how they read the model and how they build the output. Engines are Micronaut beans and
+ * are looked up by {@link #id()} through {@link TransformerRegistry}.
+ */
+public interface Transformer {
+
+    /**
+     * The identifier used to select the engine, for example in {@code nimbus.transformer.engine} or the
+     * {@code engine} query parameter.
+     */
+    String id();
+
+    /**
+     * Resolves what the engine caches per model class, so that the first transform of the class does not pay
+     * for it. The default resolves the reflective plan.
+     *
+     * @throws IllegalAccessException if the fields of the class cannot be read
+     */
+    default void prepare(Class<?> type) throws IllegalAccessException {
+        TransformPlan.of(type);
+    }
+
+    /**
+     * Transforms the model into the engine's own document representation, whose {@code toString()} is the
+     * JSON text.
+     */
+    Object transform(Object input) throws IllegalAccessException;
+
+    /**
+     * Transforms the model and writes the document to the stream as UTF-8 JSON. The stream is not closed.
+     */
+    void write(Object input, OutputStream out) throws IOException, IllegalAccessException;
+
+    /**
+     * Transforms the model and writes the document to the generator, which may belong to any Jackson data
+     * format such as the binary {@link WireFormat}s. The generator is neither flushed nor closed. The
+     * default writes the engine's JSON and copies its tokens; engines that build or stream Jackson output
+     * write to the generator directly.
+     */
+    default void write(Object input, JsonGenerator generator) throws IOException, IllegalAccessException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        write(input, json);
+        try (JsonParser parser = TransformSupport.mapper().createParser(json.toByteArray())) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.micronaut.nimbus.engine;
+
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Singleton;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Looks up the {@link Transformer} beans by id. The default engine comes from
+ * {@code nimbus.transformer.engine}.
+ */
+@Singleton
+public class TransformerRegistry {
+
+    private final Map<String, Transformer> transformers = new LinkedHashMap<>();
+    private final Transformer defaultTransformer;
+
+    public TransformerRegistry(List<Transformer> transformers,
+                               @Value("${nimbus.transformer.engine:jackson}") String defaultEngine) {
+        for (Transformer transformer : transformers) {
+            this.transformers.put(transformer.id(), transformer);
+        }
+        this.defaultTransformer = get(defaultEngine);
+    }
+
+    /**
+     * Returns the engine with the given id.
+     *
+     * @throws IllegalArgumentException if no engine has that id
+     */
+    public Transformer get(String id) {
+        Transformer transformer = transformers.get(id);
+        if (transformer == null) {
+            throw new IllegalArgumentException("Unknown transformer engine '" + id + "', expected one of " + ids());
+        }
+        return transformer;
+    }
+
+    /**
+     * Returns the engine with the given id, or the default engine when {@code id} is {@code null}.
+     */
+    public Transformer getOrDefault(String id) {
+        return id == null ? defaultTransformer : get(id);
+    }
+
+    public Transformer getDefault() {
+        return defaultTransformer;
+    }
+
+    public Set<String> ids() {
+        return transformers.keySet();
+    }
+
+    public Collection<Transformer> all() {
+        return transformers.values();
+    }
+}
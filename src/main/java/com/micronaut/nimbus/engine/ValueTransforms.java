@@ -0,0 +1,131 @@
+package com.micronaut.nimbus.engine;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Applies the string value rules of a field while the value is written, for the engines that write to a
+ * {@link JsonGenerator}. The text is copied into a scratch buffer that is reused for every value of a document:
+ * the prefix of {@code @JsonCleanPrefix} is skipped by offset and {@code @JsonToUpper}/{@code @JsonToLower}
+ * fold ASCII characters in place, so no intermediate {@code String} is created. Text read by a parser is taken
+ * from the parser's own character buffer.
+ * <p>
+ * Case mapping is locale independent, as {@link Locale#ROOT} maps it. A value with characters beyond ASCII is
+ * folded whole by {@link String#toUpperCase(Locale)} instead, since the mapped text may differ in length and
+ * depend on the characters around it.
+ */
+public final class ValueTransforms {
+
+    private static final int ASCII = 0x80;
+    private static final int CASE_OFFSET = 'a' - 'A';
+
+    private char[] buffer = new char[64];
+
+    /**
+     * Writes the value with the value rules of the field applied.
+     */
+    public void writeString(JsonGenerator generator, FieldPlan field, String value) throws IOException {
+        int length = value.length();
+        if (length > buffer.length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        value.getChars(0, length, buffer, 0);
+        write(generator, field, buffer, 0, length);
+    }
+
+    /**
+     * Writes the text of the parser's current string token with the value rules of the field applied.
+     */
+    public void writeString(JsonGenerator generator, FieldPlan field, JsonParser parser) throws IOException {
+        write(generator, field, parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+
+    private void write(JsonGenerator generator, FieldPlan field, char[] text, int offset, int length)
+            throws IOException {
+        String prefix = field.prefix();
+        if (prefix != null && startsWith(text, offset, length, prefix)) {
+            offset += prefix.length();
+            length -= prefix.length();
+        }
+        FieldPlan.CaseRule rule = field.caseRule();
+        if (rule == FieldPlan.CaseRule.NONE) {
+            generator.writeString(text, offset, length);
+            return;
+        }
+        if (length > buffer.length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        // Folds into the scratch buffer, which may be the text itself
+        boolean upper = rule == FieldPlan.CaseRule.UPPER;
+        for (int i = 0; i < length; i++) {
+            char c = text[offset + i];
+            if (c >= ASCII) {
+                // The whole value is mapped, as the mapping of a character may depend on the ones around it
+                // (a final sigma). The folded ASCII letters before it map the same and stand in for the text,
+                // which they may have overwritten
+                String value = new String(buffer, 0, i) + new String(text, offset + i, length - i);
+                generator.writeString(upper ? value.toUpperCase(Locale.ROOT) : value.toLowerCase(Locale.ROOT));
+                return;
+            }
+            buffer[i] = upper ? toUpper(c) : toLower(c);
+        }
+        generator.writeString(buffer, 0, length);
+    }
+
+    /**
+     * {@link String#toUpperCase(Locale)} with {@link Locale#ROOT}, returning the value itself when it has no
+     * lower case ASCII letters and is all ASCII.
+     */
+    public static String toUpperCase(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= ASCII || (c >= 'a' && c <= 'z')) {
+                return value.toUpperCase(Locale.ROOT);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * {@link String#toLowerCase(Locale)} with {@link Locale#ROOT}, returning the value itself when it has no
+     * upper case ASCII letters and is all ASCII.
+     */
+    public static String toLowerCase(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= ASCII || (c >= 'A' && c <= 'Z')) {
+                return value.toLowerCase(Locale.ROOT);
+            }
+        }
+        return value;
+    }
+
+    private static boolean startsWith(char[] text, int offset, int length, String prefix) {
+        if (prefix.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char toUpper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - CASE_OFFSET) : c;
+    }
+
+    private static char toLower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + CASE_OFFSET) : c;
+    }
+}
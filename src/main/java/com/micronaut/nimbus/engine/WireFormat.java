@@ -0,0 +1,68 @@
+package com.micronaut.nimbus.engine;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+/**
+ * The Jackson data formats a model can be read from and a transformed document written to. Every format
+ * carries the JSON data model, so the engines produce the same document in each of them; only the encoding
+ * differs.
+ */
+public enum WireFormat {
+
+    JSON("application/json", null),
+    CBOR("application/cbor", new CBORFactory()),
+    SMILE("application/x-jackson-smile", new SmileFactory()),
+    MESSAGE_PACK("application/msgpack", new MessagePackFactory());
+
+    /**
+     * The media type MessagePack was registered under before {@code application/msgpack}, still sent by
+     * many clients.
+     */
+    public static final String LEGACY_MESSAGE_PACK = "application/x-msgpack";
+
+    private final String mediaType;
+    private final ObjectMapper mapper;
+
+    WireFormat(String mediaType, JsonFactory factory) {
+        this.mediaType = mediaType;
+        this.mapper = factory == null
+                ? TransformSupport.mapper()
+                : TransformSupport.configure(new ObjectMapper(factory));
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * A mapper for this format, configured like {@link TransformSupport#mapper()}.
+     */
+    public ObjectMapper mapper() {
+        return mapper;
+    }
+
+    /**
+     * Returns the format of the given media type, ignoring parameters such as {@code charset}, or
+     * {@code null} when it is not one of the supported formats.
+     */
+    public static WireFormat forMediaType(String mediaType) {
+        if (mediaType == null) {
+            return null;
+        }
+        int parameters = mediaType.indexOf(';');
+        String type = (parameters < 0 ? mediaType : mediaType.substring(0, parameters)).trim();
+        if (type.equalsIgnoreCase(LEGACY_MESSAGE_PACK)) {
+            return MESSAGE_PACK;
+        }
+        for (WireFormat format : values()) {
+            if (type.equalsIgnoreCase(format.mediaType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
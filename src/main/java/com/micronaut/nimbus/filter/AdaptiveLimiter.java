@@ -0,0 +1,228 @@
+package com.micronaut.nimbus.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A concurrency limit for one endpoint that adapts to the latency it observes, AIMD style: a request that
+ * completes within the latency target while at least half the limit is in use raises the limit by one, a
+ * request that is slower or fails lowers it by the backoff ratio. The limit stays between its bounds.
+ * <p>
+ * Requests beyond the limit wait in a bounded queue, first in first out, for at most the queue timeout.
+ * Latency is measured from admission, so time spent queued does not feed back into the limit.
+ */
+final class AdaptiveLimiter {
+
+    static final String REQUESTS = "nimbus.admission.requests";
+    static final String LIMIT = "nimbus.admission.limit";
+    static final String IN_FLIGHT = "nimbus.admission.in-flight";
+    static final String QUEUED = "nimbus.admission.queued";
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final double backoff;
+    private final int queueSize;
+    private final long queueTimeoutNanos;
+    private final Deque<CompletableFuture<Permit>> queue = new ArrayDeque<>();
+    private final Counter admitted;
+    private final Counter queued;
+    private final Counter rejected;
+    private final Counter timedOut;
+    private double limit;
+    private int inFlight;
+
+    AdaptiveLimiter(String endpoint, int initialLimit, int minLimit, int maxLimit, Duration latencyTarget,
+                    double backoff, int queueSize, Duration queueTimeout, MeterRegistry registry) {
+        if (minLimit <= 0 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("The limits of " + endpoint + " must satisfy 0 < min <= max");
+        }
+        if (backoff <= 0 || backoff >= 1) {
+            throw new IllegalArgumentException("nimbus.admission.backoff must be between 0 and 1");
+        }
+        if (queueSize < 0) {
+            throw new IllegalArgumentException("nimbus.admission.queue-size must not be negative");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.backoff = backoff;
+        this.queueSize = queueSize;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.admitted = counter(registry, endpoint, "admitted");
+        this.queued = counter(registry, endpoint, "queued");
+        this.rejected = counter(registry, endpoint, "rejected");
+        this.timedOut = counter(registry, endpoint, "timed-out");
+        if (registry != null) {
+            gauge(registry, LIMIT, "Current concurrency limit", endpoint, AdaptiveLimiter::limit);
+            gauge(registry, IN_FLIGHT, "Requests admitted and not yet completed", endpoint, AdaptiveLimiter::inFlight);
+            gauge(registry, QUEUED, "Requests waiting for admission", endpoint, AdaptiveLimiter::queueLength);
+        }
+    }
+
+    /**
+     * Admits a request now, or queues it. The returned future completes with the permit once the request is
+     * admitted, or with a {@link TimeoutException} if it waits longer than the queue timeout.
+     *
+     * @return the pending permit, or {@code null} when the queue is full and the request is rejected
+     */
+    CompletableFuture<Permit> acquire() {
+        CompletableFuture<Permit> waiting;
+        synchronized (this) {
+            if (inFlight < (int) limit && queue.isEmpty()) {
+                inFlight++;
+                increment(admitted);
+                return CompletableFuture.completedFuture(new Permit(this));
+            }
+            if (queue.size() >= queueSize) {
+                increment(rejected);
+                return null;
+            }
+            waiting = new CompletableFuture<>();
+            queue.add(waiting);
+            increment(queued);
+        }
+        waiting.orTimeout(queueTimeoutNanos, TimeUnit.NANOSECONDS).whenComplete((permit, error) -> {
+            if (error != null) {
+                abandon(waiting, error);
+            }
+        });
+        return waiting;
+    }
+
+    private void abandon(CompletableFuture<Permit> waiting, Throwable error) {
+        synchronized (this) {
+            queue.remove(waiting);
+        }
+        if (error instanceof TimeoutException) {
+            increment(timedOut);
+        }
+    }
+
+    private void release(long latencyNanos, boolean dropped) {
+        List<CompletableFuture<Permit>> next;
+        synchronized (this) {
+            if (dropped || latencyNanos > latencyTargetNanos) {
+                limit = Math.max(minLimit, limit * backoff);
+            } else if (inFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+            inFlight--;
+            next = admitQueued();
+        }
+        handOver(next);
+    }
+
+    /**
+     * Takes as many queued requests as the limit allows, counting them in flight. Must hold the lock.
+     */
+    private List<CompletableFuture<Permit>> admitQueued() {
+        List<CompletableFuture<Permit>> next = List.of();
+        while (inFlight < (int) limit && !queue.isEmpty()) {
+            if (next.isEmpty()) {
+                next = new ArrayList<>();
+            }
+            next.add(queue.poll());
+            inFlight++;
+        }
+        return next;
+    }
+
+    /**
+     * Completes the futures of admitted requests outside the lock, since completing one runs the request.
+     * A future that timed out or was cancelled in the meantime gives its slot to the next in the queue.
+     */
+    private void handOver(List<CompletableFuture<Permit>> next) {
+        if (next.isEmpty()) {
+            return;
+        }
+        Deque<CompletableFuture<Permit>> pending = new ArrayDeque<>(next);
+        CompletableFuture<Permit> waiting;
+        while ((waiting = pending.poll()) != null) {
+            if (waiting.complete(new Permit(this))) {
+                increment(admitted);
+            } else {
+                synchronized (this) {
+                    inFlight--;
+                    pending.addAll(admitQueued());
+                }
+            }
+        }
+    }
+
+    synchronized double limit() {
+        return limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+
+    synchronized int queueLength() {
+        return queue.size();
+    }
+
+    private static Counter counter(MeterRegistry registry, String endpoint, String outcome) {
+        if (registry == null) {
+            return null;
+        }
+        return Counter.builder(REQUESTS)
+                .description("Requests by admission outcome")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private void gauge(MeterRegistry registry, String name, String description, String endpoint,
+                       ToDoubleFunction<AdaptiveLimiter> value) {
+        Gauge.builder(name, this, value)
+                .description(description)
+                .tag("endpoint", endpoint)
+                .register(registry);
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * The admission of one request. Releasing it more than once has no effect, so it can be released both
+     * when the response is produced and when the exchange terminates.
+     */
+    static final class Permit {
+
+        private final AdaptiveLimiter limiter;
+        private final long admittedNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(AdaptiveLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        /**
+         * Frees the slot and feeds the latency of the request into the limit.
+         *
+         * @param dropped whether the request failed, which lowers the limit like a slow response does
+         */
+        void release(boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - admittedNanos, dropped);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.micronaut.nimbus.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
+import io.micronaut.http.annotation.Filter;
+import io.micronaut.http.filter.HttpServerFilter;
+import io.micronaut.http.filter.ServerFilterChain;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Admission control for the transform and benchmark endpoints, each with its own {@link AdaptiveLimiter}, so
+ * that a flood on one endpoint cannot take the capacity of another. A request over the limit waits in the
+ * endpoint's queue; it is shed with {@code 429 Too Many Requests} when the queue is full, and with
+ * {@code 503 Service Unavailable} when it waits longer than {@code nimbus.admission.queue-timeout}. Both carry
+ * a {@code Retry-After} header.
+ * <p>
+ * The transform endpoints adapt their limit to {@code nimbus.admission.latency-target}. The benchmarks run
+ * for seconds by design, so latency says nothing about overload there; they get a fixed limit of
+ * {@code nimbus.admission.benchmark-limit} instead.
+ * <p>
+ * A request holds its permit until its response is produced. For the stream and batch endpoints that is
+ * before the body is written, so their limit covers the work done ahead of the first byte. A request whose
+ * client goes away gives its permit back without counting as dropped, whether it was queued, running, or
+ * admitted just as it was cancelled.
+ */
+@Filter("/transformer/**")
+@Requires(property = "nimbus.admission.enabled", notEquals = "false")
+public class AdmissionFilter implements HttpServerFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdmissionFilter.class);
+
+    static final List<String> TRANSFORM_ENDPOINTS = List.of(
+            "/transformer/transform",
+            "/transformer/transform/stream",
+            "/transformer/transform/rewrite",
+            "/transformer/transform/batch");
+    static final List<String> BENCHMARK_ENDPOINTS = List.of(
+            "/transformer/benchmark",
+            "/transformer/benchmark/scaling");
+
+    private final Map<String, AdaptiveLimiter> limiters;
+    private final String retryAfter;
+
+    public AdmissionFilter(@Value("${nimbus.admission.initial-limit:16}") int initialLimit,
+                           @Value("${nimbus.admission.min-limit:2}") int minLimit,
+                           @Value("${nimbus.admission.max-limit:256}") int maxLimit,
+                           @Value("${nimbus.admission.latency-target:100ms}") Duration latencyTarget,
+                           @Value("${nimbus.admission.backoff:0.9}") double backoff,
+                           @Value("${nimbus.admission.queue-size:64}") int queueSize,
+                           @Value("${nimbus.admission.queue-timeout:500ms}") Duration queueTimeout,
+                           @Value("${nimbus.admission.retry-after:1s}") Duration retryAfter,
+                           @Value("${nimbus.admission.benchmark-limit:2}") int benchmarkLimit,
+                           @Nullable MeterRegistry registry) {
+        Map<String, AdaptiveLimiter> limiters = TRANSFORM_ENDPOINTS.stream().collect(Collectors.toMap(
+                Function.identity(),
+                endpoint -> new AdaptiveLimiter(endpoint, initialLimit, minLimit, maxLimit, latencyTarget, backoff,
+                        queueSize, queueTimeout, registry)));
+        // Equal bounds pin the limit
+        BENCHMARK_ENDPOINTS.forEach(endpoint -> limiters.put(endpoint, new AdaptiveLimiter(endpoint,
+                benchmarkLimit, benchmarkLimit, benchmarkLimit, latencyTarget, backoff, queueSize, queueTimeout,
+                registry)));
+        this.limiters = Map.copyOf(limiters);
+        this.retryAfter = Long.toString(Math.max(1, retryAfter.toSeconds()));
+        LOG.info("Admission control enabled: limit {} to {} starting at {}, latency target {}, queue {}",
+                minLimit, maxLimit, initialLimit, latencyTarget, queueSize);
+    }
+
+    @Override
+    public Publisher<MutableHttpResponse<?>> doFilter(HttpRequest<?> request, ServerFilterChain chain) {
+        AdaptiveLimiter limiter = limiters.get(request.getPath());
+        if (limiter == null) {
+            return chain.proceed(request);
+        }
+        CompletableFuture<AdaptiveLimiter.Permit> admission = limiter.acquire();
+        if (admission == null) {
+            return Mono.just(shed(HttpStatus.TOO_MANY_REQUESTS));
+        }
+        // The future is cancelled by hand below rather than by fromFuture, so that a permit handed over just
+        // before the cancellation is still released
+        return Mono.fromFuture(admission, true)
+                .flatMap(permit -> Mono.from(chain.proceed(request))
+                        .doOnNext(response -> permit.release(response.code() >= 500))
+                        // An error or no response at all counts as dropped, a client that went away does not
+                        .doFinally(signal -> permit.release(signal != SignalType.CANCEL)))
+                .doOnCancel(() -> cancel(admission))
+                .onErrorResume(TimeoutException.class, e -> Mono.just(shed(HttpStatus.SERVICE_UNAVAILABLE)));
+    }
+
+    /**
+     * Withdraws a request whose client went away. A queued request leaves the queue; one whose permit was
+     * already handed over releases it, which has no effect if the request has run and released it itself.
+     */
+    static void cancel(CompletableFuture<AdaptiveLimiter.Permit> admission) {
+        if (!admission.cancel(false)) {
+            admission.thenAccept(permit -> permit.release(false));
+        }
+    }
+
+    private MutableHttpResponse<?> shed(HttpStatus status) {
+        return HttpResponse.status(status).header(HttpHeaders.RETRY_AFTER, retryAfter);
+    }
+}
@@ -0,0 +1,227 @@
+package com.micronaut.nimbus.metrics;
+
+import com.micronaut.nimbus.engine.FieldPlan;
+import com.micronaut.nimbus.engine.TransformPlan;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micronaut.core.annotation.Nullable;
+import jakarta.inject.Singleton;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transform metrics tagged with the engine and the model class: latency, output size and errors. The shape of
+ * a model, the fields it declares with those of its nested models and its nesting depth, is the same for every
+ * transform of it, so it is published once per model as a gauge tagged with the model class only.
+ * <p>
+ * The registry is only present when {@code micronaut.metrics.enabled} is set. Without it every method returns
+ * straight away, before any lookup, so the request path allocates nothing for metrics. With it, the meters of
+ * an engine and model are registered on first use and looked up without allocating afterwards. Meters are
+ * tagged with the name of the model and kept by its class, so a plugin model can still be unloaded.
+ */
+@Singleton
+public class TransformMetrics {
+
+    public static final String TRANSFORM = "nimbus.transform";
+    public static final String FIELDS = "nimbus.model.fields";
+    public static final String DEPTH = "nimbus.model.depth";
+    public static final String OUTPUT = "nimbus.transform.output";
+    public static final String ERRORS = "nimbus.transform.errors";
+
+    private static final ClassValue<ModelShape> SHAPES = new ClassValue<>() {
+        @Override
+        protected ModelShape computeValue(Class<?> type) {
+            return ModelShape.of(type);
+        }
+    };
+
+    private final MeterRegistry registry;
+    /**
+     * The meters of each model by engine, held by the model class so that they do not keep it loaded.
+     */
+    private final ClassValue<Map<String, Meters>> meters = new ClassValue<>() {
+        @Override
+        protected Map<String, Meters> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    public TransformMetrics(@Nullable MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public boolean enabled() {
+        return registry != null;
+    }
+
+    /**
+     * Returns the start time to pass to {@link #recordTransform}, or {@code 0} when metrics are disabled.
+     */
+    public long start() {
+        return registry == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Records a completed transform.
+     *
+     * @param outputBytes the size of the written output, or a negative value when it is not known
+     */
+    public void recordTransform(String engine, Class<?> model, long startNanos, long outputBytes) {
+        if (registry == null) {
+            return;
+        }
+        Meters meters = meters(engine, model);
+        meters.latency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (outputBytes >= 0) {
+            meters.output.record(outputBytes);
+        }
+    }
+
+    /**
+     * Counts a failed transform, tagged with the exception type.
+     */
+    public void recordError(String engine, Class<?> model, Throwable error) {
+        if (registry == null) {
+            return;
+        }
+        Counter.builder(ERRORS)
+                .description("Transforms that failed")
+                .tag("engine", engine)
+                .tag("model", model.getName())
+                .tag("exception", error.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Wraps the stream to count the bytes written to it, or returns it as is when metrics are disabled.
+     */
+    public OutputStream counting(OutputStream out) {
+        return registry == null ? out : new CountingOutputStream(out);
+    }
+
+    /**
+     * The bytes written to a stream returned by {@link #counting}, or {@code -1} for any other stream.
+     */
+    public static long written(OutputStream out) {
+        return out instanceof CountingOutputStream counting ? counting.count() : -1;
+    }
+
+    private Meters meters(String engine, Class<?> model) {
+        Map<String, Meters> byEngine = meters.get(model);
+        Meters engineMeters = byEngine.get(engine);
+        if (engineMeters == null) {
+            engineMeters = byEngine.computeIfAbsent(engine, key -> new Meters(registry, key, model));
+        }
+        return engineMeters;
+    }
+
+    private static final class Meters {
+
+        private final Timer latency;
+        private final DistributionSummary output;
+
+        private Meters(MeterRegistry registry, String engine, Class<?> model) {
+            String modelName = model.getName();
+            // Registered again by every engine of the model, which returns the gauges of the first
+            ModelShape shape = SHAPES.get(model);
+            Gauge.builder(FIELDS, shape::fields)
+                    .description("Fields of the model and of its nested models")
+                    .tag("model", modelName)
+                    .register(registry);
+            Gauge.builder(DEPTH, shape::depth)
+                    .description("Nesting depth of the model")
+                    .tag("model", modelName)
+                    .register(registry);
+            this.latency = Timer.builder(TRANSFORM)
+                    .description("Time to transform a model")
+                    .tag("engine", engine)
+                    .tag("model", modelName)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.output = DistributionSummary.builder(OUTPUT)
+                    .description("Size of the transformed document")
+                    .baseUnit("bytes")
+                    .tag("engine", engine)
+                    .tag("model", modelName)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Field count and nesting depth of a model, following the declared types of its nested models. Elements
+     * of collections are not counted, as their number varies per document.
+     */
+    private record ModelShape(int fields, int depth) {
+
+        static ModelShape of(Class<?> type) {
+            Set<Class<?>> visiting = new HashSet<>();
+            visiting.add(type);
+            return walk(type, visiting);
+        }
+
+        private static ModelShape walk(Class<?> type, Set<Class<?>> visiting) {
+            int fields = 0;
+            int depth = 1;
+            try {
+                for (FieldPlan field : TransformPlan.of(type).fields()) {
+                    fields++;
+                    if (field.kind() == FieldPlan.Kind.NESTED && visiting.add(field.type())) {
+                        ModelShape nested = walk(field.type(), visiting);
+                        fields += nested.fields;
+                        depth = Math.max(depth, nested.depth + 1);
+                        visiting.remove(field.type());
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                // the transform itself fails and is counted as an error
+            }
+            return new ModelShape(fields, depth);
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        long count() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
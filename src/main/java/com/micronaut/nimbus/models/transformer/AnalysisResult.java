@@ -7,22 +7,19 @@ public class AnalysisResult {
     private final ExecutionTimeResult gsonExecutionTime;
     private final ExecutionTimeResult jacksonExecutionTime;
     private final MemoryUsageResult memoryUsage;
-    private final int concurrencyThreads;
-    private final int totalTasks;
-    private final long totalConcurrencyTimeMs;
+    private final int warmupIterations;
+    private final int measurementIterations;
 
     public AnalysisResult(ExecutionTimeResult gsonExecutionTime,
                           ExecutionTimeResult jacksonExecutionTime,
                           MemoryUsageResult memoryUsage,
-                          int concurrencyThreads,
-                          int totalTasks,
-                          long totalConcurrencyTimeMs) {
+                          int warmupIterations,
+                          int measurementIterations) {
         this.gsonExecutionTime = gsonExecutionTime;
         this.jacksonExecutionTime = jacksonExecutionTime;
         this.memoryUsage = memoryUsage;
-        this.concurrencyThreads = concurrencyThreads;
-        this.totalTasks = totalTasks;
-        this.totalConcurrencyTimeMs = totalConcurrencyTimeMs;
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
     }
 
     public ExecutionTimeResult getGsonExecutionTime() {
@@ -37,16 +34,12 @@ public class AnalysisResult {
         return memoryUsage;
     }
 
-    public int getConcurrencyThreads() {
-        return concurrencyThreads;
+    public int getWarmupIterations() {
+        return warmupIterations;
     }
 
-    public int getTotalTasks() {
-        return totalTasks;
-    }
-
-    public long getTotalConcurrencyTimeMs() {
-        return totalConcurrencyTimeMs;
+    public int getMeasurementIterations() {
+        return measurementIterations;
     }
 
     @Override
@@ -55,29 +48,43 @@ public class AnalysisResult {
                 "gsonExecutionTime=" + gsonExecutionTime +
                 ", jacksonExecutionTime=" + jacksonExecutionTime +
                 ", memoryUsage=" + memoryUsage +
-                ", concurrencyThreads=" + concurrencyThreads +
-                ", totalTasks=" + totalTasks +
-                ", totalConcurrencyTimeMs=" + totalConcurrencyTimeMs +
+                ", warmupIterations=" + warmupIterations +
+                ", measurementIterations=" + measurementIterations +
                 '}';
     }
 
+    /**
+     * Latencies of the measured transforms, from a nanosecond histogram: the minimum, maximum and mean in
+     * fractional milliseconds, and the percentiles in microseconds.
+     */
     @Serdeable
     public static class ExecutionTimeResult {
-        private final long minTimeMs;
-        private final long maxTimeMs;
+        private final double minTimeMs;
+        private final double maxTimeMs;
         private final double avgTimeMs;
-
-        public ExecutionTimeResult(long minTimeMs, long maxTimeMs, double avgTimeMs) {
+        private final double p50Us;
+        private final double p90Us;
+        private final double p99Us;
+        private final double p999Us;
+        private final double maxUs;
+
+        public ExecutionTimeResult(double minTimeMs, double maxTimeMs, double avgTimeMs,
+                                   double p50Us, double p90Us, double p99Us, double p999Us, double maxUs) {
             this.minTimeMs = minTimeMs;
             this.maxTimeMs = maxTimeMs;
             this.avgTimeMs = avgTimeMs;
+            this.p50Us = p50Us;
+            this.p90Us = p90Us;
+            this.p99Us = p99Us;
+            this.p999Us = p999Us;
+            this.maxUs = maxUs;
         }
 
-        public long getMinTimeMs() {
+        public double getMinTimeMs() {
             return minTimeMs;
         }
 
-        public long getMaxTimeMs() {
+        public double getMaxTimeMs() {
             return maxTimeMs;
         }
 
@@ -85,12 +92,37 @@ public class AnalysisResult {
             return avgTimeMs;
         }
 
+        public double getP50Us() {
+            return p50Us;
+        }
+
+        public double getP90Us() {
+            return p90Us;
+        }
+
+        public double getP99Us() {
+            return p99Us;
+        }
+
+        public double getP999Us() {
+            return p999Us;
+        }
+
+        public double getMaxUs() {
+            return maxUs;
+        }
+
         @Override
         public String toString() {
             return "ExecutionTimeResult{" +
                     "minTimeMs=" + minTimeMs +
                     ", maxTimeMs=" + maxTimeMs +
                     ", avgTimeMs=" + avgTimeMs +
+                    ", p50Us=" + p50Us +
+                    ", p90Us=" + p90Us +
+                    ", p99Us=" + p99Us +
+                    ", p999Us=" + p999Us +
+                    ", maxUs=" + maxUs +
                     '}';
         }
     }
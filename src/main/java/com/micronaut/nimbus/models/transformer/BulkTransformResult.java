@@ -0,0 +1,73 @@
+package com.micronaut.nimbus.models.transformer;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+/**
+ * Totals of one bulk file transform. Throughput is measured over the wall time of the whole job, from
+ * opening the input to the last byte written; the byte rate counts input bytes.
+ */
+@Serdeable
+public class BulkTransformResult {
+    private final String engine;
+    private final long records;
+    private final long chunks;
+    private final long inputBytes;
+    private final long outputBytes;
+    private final long elapsedNanos;
+
+    public BulkTransformResult(String engine, long records, long chunks, long inputBytes, long outputBytes,
+                               long elapsedNanos) {
+        this.engine = engine;
+        this.records = records;
+        this.chunks = chunks;
+        this.inputBytes = inputBytes;
+        this.outputBytes = outputBytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getChunks() {
+        return chunks;
+    }
+
+    public long getInputBytes() {
+        return inputBytes;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    public double getElapsedSeconds() {
+        return elapsedNanos / 1e9;
+    }
+
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+    }
+
+    public double getBytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : inputBytes * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkTransformResult{" +
+                "engine='" + engine + '\'' +
+                ", records=" + records +
+                ", chunks=" + chunks +
+                ", inputBytes=" + inputBytes +
+                ", outputBytes=" + outputBytes +
+                ", elapsedSeconds=" + getElapsedSeconds() +
+                ", recordsPerSecond=" + getRecordsPerSecond() +
+                ", bytesPerSecond=" + getBytesPerSecond() +
+                '}';
+    }
+}
@@ -0,0 +1,82 @@
+package com.micronaut.nimbus.models.transformer;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+/**
+ * Counters of the transform result cache since startup. Evicted and weighted sizes are in bytes, as counted
+ * against {@code maxBytes}.
+ */
+@Serdeable
+public class CacheStatsResult {
+    private final boolean enabled;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long evictedBytes;
+    private final long entries;
+    private final long weightedBytes;
+    private final long maxBytes;
+
+    public CacheStatsResult(boolean enabled, long hits, long misses, long evictions, long evictedBytes,
+                            long entries, long weightedBytes, long maxBytes) {
+        this.enabled = enabled;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.evictedBytes = evictedBytes;
+        this.entries = entries;
+        this.weightedBytes = weightedBytes;
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getEvictedBytes() {
+        return evictedBytes;
+    }
+
+    public long getEntries() {
+        return entries;
+    }
+
+    public long getWeightedBytes() {
+        return weightedBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatsResult{" +
+                "enabled=" + enabled +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", evictedBytes=" + evictedBytes +
+                ", entries=" + entries +
+                ", weightedBytes=" + weightedBytes +
+                ", maxBytes=" + maxBytes +
+                '}';
+    }
+}
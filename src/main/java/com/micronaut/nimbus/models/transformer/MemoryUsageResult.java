@@ -2,14 +2,22 @@ package com.micronaut.nimbus.models.transformer;
 
 import io.micronaut.serde.annotation.Serdeable;
 
+/**
+ * Bytes allocated by the benchmarking thread per transform, averaged over the measurement iterations.
+ * The byte counts are {@code -1} when the JVM does not support per-thread allocation accounting.
+ */
 @Serdeable
 public class MemoryUsageResult {
     private final long gsonMemoryKb;
     private final long jacksonMemoryKb;
+    private final long gsonAllocatedBytes;
+    private final long jacksonAllocatedBytes;
 
-    public MemoryUsageResult(long gsonMemoryKb, long jacksonMemoryKb) {
-        this.gsonMemoryKb = gsonMemoryKb;
-        this.jacksonMemoryKb = jacksonMemoryKb;
+    public MemoryUsageResult(long gsonAllocatedBytes, long jacksonAllocatedBytes) {
+        this.gsonAllocatedBytes = gsonAllocatedBytes;
+        this.jacksonAllocatedBytes = jacksonAllocatedBytes;
+        this.gsonMemoryKb = gsonAllocatedBytes < 0 ? -1 : gsonAllocatedBytes / 1024;
+        this.jacksonMemoryKb = jacksonAllocatedBytes < 0 ? -1 : jacksonAllocatedBytes / 1024;
     }
 
     public long getGsonMemoryKb() {
@@ -20,11 +28,21 @@ public class MemoryUsageResult {
         return jacksonMemoryKb;
     }
 
+    public long getGsonAllocatedBytes() {
+        return gsonAllocatedBytes;
+    }
+
+    public long getJacksonAllocatedBytes() {
+        return jacksonAllocatedBytes;
+    }
+
     @Override
     public String toString() {
         return "MemoryUsageResult{" +
                 "gsonMemoryKb=" + gsonMemoryKb +
                 ", jacksonMemoryKb=" + jacksonMemoryKb +
+                ", gsonAllocatedBytes=" + gsonAllocatedBytes +
+                ", jacksonAllocatedBytes=" + jacksonAllocatedBytes +
                 '}';
     }
 }
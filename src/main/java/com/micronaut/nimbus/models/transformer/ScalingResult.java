@@ -0,0 +1,135 @@
+package com.micronaut.nimbus.models.transformer;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+import java.util.List;
+
+/**
+ * Throughput and latency of every engine at increasing thread counts, on platform and virtual threads.
+ * Points are ordered by engine, executor and thread count, so each engine/executor pair reads as a
+ * throughput-vs-threads curve.
+ */
+@Serdeable
+public class ScalingResult {
+    private final int maxThreads;
+    private final int operationsPerThread;
+    private final int availableProcessors;
+    private final List<ScalingPoint> points;
+
+    public ScalingResult(int maxThreads, int operationsPerThread, int availableProcessors, List<ScalingPoint> points) {
+        this.maxThreads = maxThreads;
+        this.operationsPerThread = operationsPerThread;
+        this.availableProcessors = availableProcessors;
+        this.points = points;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public int getOperationsPerThread() {
+        return operationsPerThread;
+    }
+
+    public int getAvailableProcessors() {
+        return availableProcessors;
+    }
+
+    public List<ScalingPoint> getPoints() {
+        return points;
+    }
+
+    @Override
+    public String toString() {
+        return "ScalingResult{" +
+                "maxThreads=" + maxThreads +
+                ", operationsPerThread=" + operationsPerThread +
+                ", availableProcessors=" + availableProcessors +
+                ", points=" + points +
+                '}';
+    }
+
+    @Serdeable
+    public static class ScalingPoint {
+        private final String engine;
+        private final String executor;
+        private final int threads;
+        private final long operations;
+        private final double opsPerSecond;
+        private final double p50Us;
+        private final double p90Us;
+        private final double p99Us;
+        private final double p999Us;
+        private final double maxUs;
+
+        public ScalingPoint(String engine, String executor, int threads, long operations, double opsPerSecond,
+                            double p50Us, double p90Us, double p99Us, double p999Us, double maxUs) {
+            this.engine = engine;
+            this.executor = executor;
+            this.threads = threads;
+            this.operations = operations;
+            this.opsPerSecond = opsPerSecond;
+            this.p50Us = p50Us;
+            this.p90Us = p90Us;
+            this.p99Us = p99Us;
+            this.p999Us = p999Us;
+            this.maxUs = maxUs;
+        }
+
+        public String getEngine() {
+            return engine;
+        }
+
+        public String getExecutor() {
+            return executor;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public long getOperations() {
+            return operations;
+        }
+
+        public double getOpsPerSecond() {
+            return opsPerSecond;
+        }
+
+        public double getP50Us() {
+            return p50Us;
+        }
+
+        public double getP90Us() {
+            return p90Us;
+        }
+
+        public double getP99Us() {
+            return p99Us;
+        }
+
+        public double getP999Us() {
+            return p999Us;
+        }
+
+        public double getMaxUs() {
+            return maxUs;
+        }
+
+        @Override
+        public String toString() {
+            return "ScalingPoint{" +
+                    "engine='" + engine + '\'' +
+                    ", executor='" + executor + '\'' +
+                    ", threads=" + threads +
+                    ", operations=" + operations +
+                    ", opsPerSecond=" + opsPerSecond +
+                    ", p50Us=" + p50Us +
+                    ", p90Us=" + p90Us +
+                    ", p99Us=" + p99Us +
+                    ", p999Us=" + p999Us +
+                    ", maxUs=" + maxUs +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.micronaut.nimbus.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.micronaut.nimbus.engine.TransformSupport;
+import com.micronaut.nimbus.engine.Transformer;
+import com.micronaut.nimbus.metrics.TransformMetrics;
+import io.micronaut.context.annotation.Value;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Transforms a stream of records, given as a JSON array or as newline-delimited JSON, into NDJSON.
+ * <p>
+ * Records are read one at a time as they are requested downstream and transformed on a bounded worker pool;
+ * at most {@code nimbus.batch.max-in-flight} records are read but not yet written, so memory does not grow
+ * with the size of the batch. Results are emitted in input order.
+ * <p>
+ * The response has already started when a record fails to parse or transform, so the failure cannot change its
+ * status. The lines written so far are kept and a last line {@code {"error": "<message>"}} ends the stream
+ * instead; no further records are read.
+ */
+@Singleton
+public class BatchTransformService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchTransformService.class);
+    private static final byte NEWLINE = '\n';
+
+    private final Scheduler workers;
+    private final int maxInFlight;
+    private final TransformMetrics metrics;
+
+    public BatchTransformService(@Value("${nimbus.batch.parallelism:0}") int parallelism,
+                                 @Value("${nimbus.batch.max-in-flight:0}") int maxInFlight,
+                                 TransformMetrics metrics) {
+        int workerCount = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.workers = Schedulers.newParallel("nimbus-batch", workerCount, true);
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : workerCount * 2;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Reads records of the given type from the body and emits one NDJSON line per record. The body is read
+     * on demand on a blocking scheduler and closed when the returned publisher terminates or is cancelled.
+     */
+    public Publisher<byte[]> transform(Class<?> type, InputStream body, Transformer transformer) {
+        return Flux.using(
+                        () -> records(type, body),
+                        records -> Flux.<Object>generate(sink -> {
+                            try {
+                                if (records.hasNextValue()) {
+                                    sink.next(records.nextValue());
+                                } else {
+                                    sink.complete();
+                                }
+                            } catch (IOException e) {
+                                sink.error(e);
+                            }
+                        }),
+                        records -> close(records, body))
+                .subscribeOn(Schedulers.boundedElastic())
+                // Failures travel as signals in input order, so the records before a failing one are written
+                // before the stream ends, whichever of them finishes first
+                .onErrorResume(e -> Mono.just(new ReadFailure(e)))
+                .flatMapSequential(record -> record instanceof ReadFailure failure
+                        ? Mono.just(Signal.<byte[]>error(failure.cause()))
+                        : Mono.fromCallable(() -> line(record, transformer)).subscribeOn(workers).materialize(),
+                        maxInFlight, 1)
+                .<byte[]>dematerialize()
+                .onErrorResume(e -> {
+                    LOG.error("Batch transform failed", e);
+                    return Mono.fromCallable(() -> errorLine(e));
+                });
+    }
+
+    private static MappingIterator<Object> records(Class<?> type, InputStream body) throws IOException {
+        JsonParser parser = TransformSupport.mapper().getFactory().createParser(body);
+        // Root-level values are read one after another; a root-level array is unwrapped by stepping over
+        // its START_ARRAY, the iterator then stops at the matching END_ARRAY
+        if (parser.nextToken() == JsonToken.START_ARRAY) {
+            parser.clearCurrentToken();
+        }
+        return TransformSupport.mapper().readerFor(type).readValues(parser);
+    }
+
+    private byte[] line(Object record, Transformer transformer) throws IOException, IllegalAccessException {
+        long start = metrics.start();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try {
+            transformer.write(record, out);
+        } catch (IOException | IllegalAccessException | RuntimeException e) {
+            metrics.recordError(transformer.id(), record.getClass(), e);
+            throw e;
+        }
+        metrics.recordTransform(transformer.id(), record.getClass(), start, out.size());
+        out.write(NEWLINE);
+        return out.toByteArray();
+    }
+
+    private static byte[] errorLine(Throwable e) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        TransformSupport.mapper().writeValue(out, Map.of("error", String.valueOf(e.getMessage())));
+        out.write(NEWLINE);
+        return out.toByteArray();
+    }
+
+    private static void close(MappingIterator<Object> records, InputStream body) {
+        try (body) {
+            records.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stands in the record stream for a record that could not be read.
+     */
+    private record ReadFailure(Throwable cause) {
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.dispose();
+    }
+}
@@ -0,0 +1,180 @@
+package com.micronaut.nimbus.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.micronaut.nimbus.engine.TransformSupport;
+import com.micronaut.nimbus.engine.Transformer;
+import com.micronaut.nimbus.metrics.TransformMetrics;
+import com.micronaut.nimbus.models.transformer.BulkTransformResult;
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Transforms an NDJSON file into an NDJSON file offline, for backfills too large to replay over HTTP.
+ * <p>
+ * The input is memory-mapped one chunk at a time: each chunk is about {@code nimbus.bulk.chunk-size} bytes,
+ * cut back to the last newline so that no record spans two chunks. Chunks are transformed in parallel on
+ * {@code nimbus.bulk.parallelism} workers, and their output is written to the output file in input order.
+ * At most {@code nimbus.bulk.max-in-flight} chunks are mapped or transformed but not yet written, so memory
+ * is bounded by the chunk size rather than by the size of the file.
+ */
+@Singleton
+public class BulkTransformService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkTransformService.class);
+    private static final byte NEWLINE = '\n';
+
+    private final int chunkSize;
+    private final int parallelism;
+    private final int maxInFlight;
+    private final TransformMetrics metrics;
+
+    public BulkTransformService(@Value("${nimbus.bulk.chunk-size:4194304}") int chunkSize,
+                                @Value("${nimbus.bulk.parallelism:0}") int parallelism,
+                                @Value("${nimbus.bulk.max-in-flight:0}") int maxInFlight,
+                                TransformMetrics metrics) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("nimbus.bulk.chunk-size must be positive");
+        }
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : this.parallelism * 2;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Transforms every record of {@code input} into one line of {@code output}, which is created or
+     * truncated. Blank lines are skipped.
+     *
+     * @throws IOException if a file cannot be read or written, a record is invalid, or a record is longer
+     *                     than the chunk size
+     */
+    public BulkTransformResult transform(Class<?> type, Path input, Path output, Transformer transformer)
+            throws IOException, IllegalAccessException {
+        long started = System.nanoTime();
+        long records = 0;
+        long chunks = 0;
+        long written = 0;
+        Deque<Future<Chunk>> pending = new ArrayDeque<>(maxInFlight);
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING);
+             ExecutorService workers = Executors.newFixedThreadPool(parallelism,
+                     Thread.ofPlatform().name("nimbus-bulk-", 0).daemon().factory())) {
+            long size = in.size();
+            long position = 0;
+            try {
+                while (position < size || !pending.isEmpty()) {
+                    if (position < size && pending.size() < maxInFlight) {
+                        ByteBuffer chunk = nextChunk(in, position, size);
+                        long offset = position;
+                        position += chunk.remaining();
+                        chunks++;
+                        pending.add(workers.submit(() -> transformChunk(type, chunk, offset, transformer)));
+                    } else {
+                        Chunk done = await(pending.poll());
+                        records += done.records;
+                        written += write(out, done.output);
+                    }
+                }
+            } finally {
+                pending.forEach(future -> future.cancel(true));
+            }
+            LOG.info("Transformed {} records in {} chunks from {} into {}", records, chunks, input, output);
+            return new BulkTransformResult(transformer.id(), records, chunks, size, written,
+                    System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Maps the chunk starting at {@code position}, ending after its last newline or at the end of the file.
+     */
+    private ByteBuffer nextChunk(FileChannel in, long position, long size) throws IOException {
+        int length = (int) Math.min(chunkSize, size - position);
+        MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+        if (position + length == size) {
+            return window;
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            if (window.get(i) == NEWLINE) {
+                return window.slice(0, i + 1);
+            }
+        }
+        throw new IOException("The record at byte " + position + " is longer than nimbus.bulk.chunk-size ("
+                + chunkSize + " bytes)");
+    }
+
+    private Chunk transformChunk(Class<?> type, ByteBuffer chunk, long offset, Transformer transformer)
+            throws IOException, IllegalAccessException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(chunk.remaining());
+        int records = 0;
+        try (MappingIterator<Object> values = TransformSupport.mapper().readerFor(type)
+                .readValues(new ByteBufferBackedInputStream(chunk))) {
+            while (values.hasNextValue()) {
+                Object record = values.nextValue();
+                long start = metrics.start();
+                int before = out.size();
+                try {
+                    transformer.write(record, out);
+                } catch (IOException | IllegalAccessException | RuntimeException e) {
+                    metrics.recordError(transformer.id(), type, e);
+                    throw e;
+                }
+                metrics.recordTransform(transformer.id(), type, start, out.size() - before);
+                out.write(NEWLINE);
+                records++;
+            }
+        } catch (IOException e) {
+            throw new IOException("Invalid record in the chunk at byte " + offset + ": " + e.getMessage(), e);
+        }
+        return new Chunk(out.toByteArray(), records);
+    }
+
+    private static long write(FileChannel out, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        return bytes.length;
+    }
+
+    private static Chunk await(Future<Chunk> chunk) throws IOException, IllegalAccessException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Bulk transform interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof IllegalAccessException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private record Chunk(byte[] output, int records) {
+    }
+}
@@ -1,144 +1,281 @@
 package com.micronaut.nimbus.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.micronaut.nimbus.engine.GsonJsonTransformer;
 import com.micronaut.nimbus.engine.JsonTransformer;
+import com.micronaut.nimbus.engine.TokenRewriteTransformer;
+import com.micronaut.nimbus.engine.TransformSupport;
+import com.micronaut.nimbus.engine.Transformer;
+import com.micronaut.nimbus.engine.TransformerRegistry;
+import com.micronaut.nimbus.engine.WireFormat;
+import com.micronaut.nimbus.metrics.TransformMetrics;
 import com.micronaut.nimbus.models.transformer.AnalysisResult;
+import com.micronaut.nimbus.models.transformer.CacheStatsResult;
 import com.micronaut.nimbus.models.transformer.MemoryUsageResult;
+import com.sun.management.ThreadMXBean;
+import io.micronaut.serde.ObjectMapper;
 import jakarta.inject.Singleton;
+import org.HdrHistogram.Histogram;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
 
 @Singleton
 public class JsonTransformerService {
 
     private static final Logger LOG = LoggerFactory.getLogger(JsonTransformerService.class);
 
-    private final JsonTransformer jsonTransformer;
-    private final GsonJsonTransformer gsonTransformer;
+    public static final int DEFAULT_WARMUP_ITERATIONS = 1_000;
+    public static final int DEFAULT_MEASUREMENT_ITERATIONS = 1_000;
+    private static final int MAX_ITERATIONS = 1_000_000;
+    private static final String REWRITE_ENGINE = "rewrite";
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
 
-    public JsonTransformerService(JsonTransformer jsonTransformer, GsonJsonTransformer gsonTransformer) {
+    private final TransformerRegistry transformers;
+    private final Transformer jsonTransformer;
+    private final Transformer gsonTransformer;
+    private final TokenRewriteTransformer rewriteTransformer;
+    private final TransformResultCache resultCache;
+    private final ObjectMapper mapper;
+    private final TransformMetrics metrics;
+
+    public JsonTransformerService(TransformerRegistry transformers, JsonTransformer jsonTransformer,
+                                  GsonJsonTransformer gsonTransformer, TokenRewriteTransformer rewriteTransformer,
+                                  TransformResultCache resultCache, ObjectMapper mapper, TransformMetrics metrics) {
+        this.transformers = transformers;
         this.jsonTransformer = jsonTransformer;
         this.gsonTransformer = gsonTransformer;
+        this.rewriteTransformer = rewriteTransformer;
+        this.resultCache = resultCache;
+        this.mapper = mapper;
+        this.metrics = metrics;
     }
 
     public Object jsonTransformerTransform(Object input) throws IllegalAccessException {
-        return jsonTransformer.transform(input);
+        return transform(transformers.getDefault(), input);
     }
 
-    public AnalysisResult performAnalysis(Object input) {
-        LOG.info("Starting JSON performance analysis with payload of type: {}", input.getClass().getName());
+    /**
+     * Transforms with the given engine, or the configured default when {@code engine} is {@code null}.
+     *
+     * @throws IllegalArgumentException if the engine is unknown
+     */
+    public Object jsonTransformerTransform(Object input, String engine) throws IllegalAccessException {
+        return transform(transformers.getOrDefault(engine), input);
+    }
 
+    private Object transform(Transformer transformer, Object input) throws IllegalAccessException {
+        long start = metrics.start();
         try {
-            // Execution Time Benchmark
-            AnalysisResult.ExecutionTimeResult gsonTimes = benchmarkExecutionTime(gsonTransformer, input, 100);
-            AnalysisResult.ExecutionTimeResult jacksonTimes = benchmarkExecutionTime(jsonTransformer, input, 100);
-
-            // Memory Usage Benchmark
-            MemoryUsageResult memoryUsage = benchmarkMemoryUsage(gsonTransformer, jsonTransformer, input);
+            Object result = transformer.transform(input);
+            metrics.recordTransform(transformer.id(), input.getClass(), start, -1);
+            return result;
+        } catch (IllegalAccessException | RuntimeException e) {
+            metrics.recordError(transformer.id(), input.getClass(), e);
+            throw e;
+        }
+    }
 
-            // Concurrency Benchmark
-            int threads = 10;
-            int totalTasks = threads * 5; // Each thread runs 5 tasks
-            long totalConcurrencyTime = benchmarkConcurrency(gsonTransformer, jsonTransformer, input, threads);
+    /**
+     * Binds the JSON body as {@code type}, transforms it with the given engine, or the configured default when
+     * {@code engine} is {@code null}, and writes the UTF-8 JSON output to {@code out}.
+     *
+     * @throws IllegalArgumentException if the engine is unknown
+     * @throws IOException              if the body cannot be bound or the output cannot be written
+     * @see #jsonTransformerTransform(Class, byte[], String, WireFormat, WireFormat, OutputStream)
+     */
+    public void jsonTransformerTransform(Class<?> type, byte[] body, String engine, OutputStream out)
+            throws IOException, IllegalAccessException {
+        jsonTransformerTransform(type, body, engine, WireFormat.JSON, WireFormat.JSON, out);
+    }
 
-            LOG.info("JSON performance analysis completed successfully.");
-            return new AnalysisResult(gsonTimes, jacksonTimes, memoryUsage, threads, totalTasks, totalConcurrencyTime);
+    /**
+     * Binds the body, encoded in the {@code input} format, as {@code type}, transforms it with the given engine,
+     * or the configured default when {@code engine} is {@code null}, and writes the document to {@code out} in
+     * the {@code output} format. When the result cache is enabled, a body seen before for the same engine and
+     * formats is answered from the cache without binding or transforming it.
+     *
+     * @throws IllegalArgumentException if the engine is unknown
+     * @throws IOException              if the body cannot be bound or the output cannot be written
+     */
+    public void jsonTransformerTransform(Class<?> type, byte[] body, String engine, WireFormat input,
+                                         WireFormat output, OutputStream out) throws IOException, IllegalAccessException {
+        Transformer transformer = transformers.getOrDefault(engine);
+        byte[] cached = resultCache.get(type, transformer.id(), input, output, body);
+        if (cached != null) {
+            out.write(cached);
+            return;
+        }
 
-        } catch (Exception e) {
-            LOG.error("Error during JSON performance analysis: {}", e.getMessage(), e);
-            throw new RuntimeException("JSON performance analysis failed. Please check the logs for details.", e);
+        // JSON is bound by Micronaut Serialization like any other request body, the binary formats by Jackson
+        // mappers that skip unknown properties as it does
+        Object model = input == WireFormat.JSON ? mapper.readValue(body, type) : input.mapper().readValue(body, type);
+        // The output only goes through an array of its own when it is kept in the cache
+        ByteArrayOutputStream result = resultCache.enabled() ? new ByteArrayOutputStream() : null;
+        long start = metrics.start();
+        OutputStream counted = metrics.counting(result != null ? result : out);
+        try {
+            if (output == WireFormat.JSON) {
+                transformer.write(model, counted);
+            } else {
+                try (JsonGenerator generator = output.mapper().createGenerator(counted)) {
+                    transformer.write(model, generator);
+                }
+            }
+        } catch (IOException | IllegalAccessException | RuntimeException e) {
+            metrics.recordError(transformer.id(), type, e);
+            throw e;
+        }
+        metrics.recordTransform(transformer.id(), type, start, TransformMetrics.written(counted));
+        if (result != null) {
+            byte[] bytes = result.toByteArray();
+            resultCache.put(type, transformer.id(), input, output, body, bytes);
+            out.write(bytes);
         }
     }
 
-    private AnalysisResult.ExecutionTimeResult benchmarkExecutionTime(Object transformer, Object payload, int iterations) throws Exception {
-        List<Long> times = new ArrayList<>();
+    public CacheStatsResult cacheStats() {
+        return resultCache.stats();
+    }
 
-        for (int i = 0; i < iterations; i++) {
-            long time = measureExecutionTime(() -> {
-                try {
-                    if (transformer instanceof GsonJsonTransformer gson) {
-                        gson.transform(payload);
-                    } else if (transformer instanceof JsonTransformer jackson) {
-                        jackson.transform(payload);
-                    }
-                } catch (Exception e) {
-                    LOG.error("Transformation error: {}", e.getMessage(), e);
-                }
-            });
-            times.add(time);
+    /**
+     * Returns the engine used to write streamed responses: the given one, or the streaming engine when
+     * {@code engine} is {@code null}.
+     *
+     * @throws IllegalArgumentException if the engine is unknown
+     */
+    public Transformer streamTransformer(String engine) {
+        return transformers.get(engine == null ? "streaming" : engine);
+    }
+
+    public void jsonTransformerStream(Object input, Transformer transformer, OutputStream out) throws IOException, IllegalAccessException {
+        long start = metrics.start();
+        OutputStream counted = metrics.counting(out);
+        try {
+            transformer.write(input, counted);
+        } catch (IOException | IllegalAccessException | RuntimeException e) {
+            metrics.recordError(transformer.id(), input.getClass(), e);
+            throw e;
         }
+        metrics.recordTransform(transformer.id(), input.getClass(), start, TransformMetrics.written(counted));
+    }
 
-        double avg = times.stream().mapToLong(Long::longValue).average().orElse(0);
-        long min = times.stream().mapToLong(Long::longValue).min().orElse(0);
-        long max = times.stream().mapToLong(Long::longValue).max().orElse(0);
+    /**
+     * Writes the document as characters, for responses that are handed a {@link Writer}. The written size is
+     * not known in bytes, so none is recorded.
+     */
+    public void jsonTransformerStream(Object input, Transformer transformer, Writer out)
+            throws IOException, IllegalAccessException {
+        long start = metrics.start();
+        try (JsonGenerator generator = TransformSupport.mapper().createGenerator(out)) {
+            transformer.write(input, generator);
+        } catch (IOException | IllegalAccessException | RuntimeException e) {
+            metrics.recordError(transformer.id(), input.getClass(), e);
+            throw e;
+        }
+        metrics.recordTransform(transformer.id(), input.getClass(), start, -1);
+    }
 
-        return new AnalysisResult.ExecutionTimeResult(min, max, avg);
+    public void jsonTransformerRewrite(Class<?> type, Publisher<byte[]> body, OutputStream out) throws IOException, IllegalAccessException {
+        long start = metrics.start();
+        OutputStream counted = metrics.counting(out);
+        try {
+            rewriteTransformer.transform(type, body, counted);
+        } catch (IOException | IllegalAccessException | RuntimeException e) {
+            metrics.recordError(REWRITE_ENGINE, type, e);
+            throw e;
+        }
+        metrics.recordTransform(REWRITE_ENGINE, type, start, TransformMetrics.written(counted));
     }
 
-    private long measureExecutionTime(Runnable task) {
-        long start = System.nanoTime();
-        task.run();
-        return (System.nanoTime() - start) / 1_000_000; // Convert to milliseconds
+    public AnalysisResult performAnalysis(Object input) {
+        return performAnalysis(input, DEFAULT_WARMUP_ITERATIONS, DEFAULT_MEASUREMENT_ITERATIONS);
     }
 
-    private MemoryUsageResult benchmarkMemoryUsage(GsonJsonTransformer gsonTransformer, JsonTransformer jacksonTransformer, Object payload) throws Exception {
-        Runtime runtime = Runtime.getRuntime();
+    /**
+     * Benchmarks the Gson and Jackson engines on the given payload. Every engine first runs
+     * {@code warmupIterations} unrecorded transforms, then {@code measurementIterations} transforms whose
+     * latencies and allocations are recorded. Scaling with threads is measured by {@link ScalingBenchmarkService}.
+     *
+     * @throws IllegalArgumentException if the iteration counts are out of range
+     */
+    public AnalysisResult performAnalysis(Object input, int warmupIterations, int measurementIterations) {
+        if (warmupIterations < 0 || warmupIterations > MAX_ITERATIONS) {
+            throw new IllegalArgumentException("warmupIterations must be between 0 and " + MAX_ITERATIONS);
+        }
+        if (measurementIterations < 1 || measurementIterations > MAX_ITERATIONS) {
+            throw new IllegalArgumentException("iterations must be between 1 and " + MAX_ITERATIONS);
+        }
+        LOG.info("Starting JSON performance analysis with payload of type: {}", input.getClass().getName());
+
+        try {
+            // Execution Time Benchmark
+            warmUp(gsonTransformer, input, warmupIterations);
+            AnalysisResult.ExecutionTimeResult gsonTimes = benchmarkExecutionTime(gsonTransformer, input, measurementIterations);
+            warmUp(jsonTransformer, input, warmupIterations);
+            AnalysisResult.ExecutionTimeResult jacksonTimes = benchmarkExecutionTime(jsonTransformer, input, measurementIterations);
 
-        runtime.gc();
-        long beforeGsonMemory = runtime.totalMemory() - runtime.freeMemory();
-        gsonTransformer.transform(payload);
-        long afterGsonMemory = runtime.totalMemory() - runtime.freeMemory();
+            // Memory Usage Benchmark
+            MemoryUsageResult memoryUsage = new MemoryUsageResult(
+                    benchmarkAllocatedBytes(gsonTransformer, input, measurementIterations),
+                    benchmarkAllocatedBytes(jsonTransformer, input, measurementIterations));
 
-        runtime.gc();
-        long beforeJacksonMemory = runtime.totalMemory() - runtime.freeMemory();
-        jacksonTransformer.transform(payload);
-        long afterJacksonMemory = runtime.totalMemory() - runtime.freeMemory();
+            LOG.info("JSON performance analysis completed successfully.");
+            return new AnalysisResult(gsonTimes, jacksonTimes, memoryUsage, warmupIterations, measurementIterations);
 
-        return new MemoryUsageResult(
-                (afterGsonMemory - beforeGsonMemory) / 1024, // Convert to KB
-                (afterJacksonMemory - beforeJacksonMemory) / 1024 // Convert to KB
-        );
+        } catch (Exception e) {
+            LOG.error("Error during JSON performance analysis: {}", e.getMessage(), e);
+            throw new RuntimeException("JSON performance analysis failed. Please check the logs for details.", e);
+        }
     }
 
-    private long benchmarkConcurrency(GsonJsonTransformer gsonTransformer, JsonTransformer jacksonTransformer, Object payload, int threads) {
-        ExecutorService executor = Executors.newFixedThreadPool(threads);
-        long start = System.currentTimeMillis();
+    private void warmUp(Transformer transformer, Object payload, int iterations) throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            transformer.transform(payload);
+        }
+    }
 
-        try {
-            List<Callable<Void>> tasks = new ArrayList<>();
-            for (int i = 0; i < threads * 5; i++) { // Each thread handles 5 tasks
-                tasks.add(i % 2 == 0 ? createTask(gsonTransformer, payload) : createTask(jacksonTransformer, payload));
-            }
+    private AnalysisResult.ExecutionTimeResult benchmarkExecutionTime(Transformer transformer, Object payload, int iterations) throws Exception {
+        Histogram histogram = LatencyHistograms.create();
 
-            executor.invokeAll(tasks);
-        } catch (InterruptedException e) {
-            LOG.error("Concurrency benchmark interrupted: {}", e.getMessage(), e);
-            Thread.currentThread().interrupt();
-        } finally {
-            executor.shutdown();
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            transformer.transform(payload);
+            histogram.recordValue(System.nanoTime() - start);
         }
 
-        return System.currentTimeMillis() - start;
+        return new AnalysisResult.ExecutionTimeResult(
+                LatencyHistograms.millis(histogram.getMinValue()),
+                LatencyHistograms.millis(histogram.getMaxValue()),
+                histogram.getMean() / 1_000_000,
+                LatencyHistograms.micros(histogram.getValueAtPercentile(50)),
+                LatencyHistograms.micros(histogram.getValueAtPercentile(90)),
+                LatencyHistograms.micros(histogram.getValueAtPercentile(99)),
+                LatencyHistograms.micros(histogram.getValueAtPercentile(99.9)),
+                LatencyHistograms.micros(histogram.getMaxValue()));
     }
 
-    private Callable<Void> createTask(Object transformer, Object payload) {
-        return () -> {
-            try {
-                if (transformer instanceof GsonJsonTransformer gson) {
-                    gson.transform(payload);
-                } else if (transformer instanceof JsonTransformer jackson) {
-                    jackson.transform(payload);
-                }
-            } catch (Exception e) {
-                LOG.error("Error in concurrency task: {}", e.getMessage(), e);
-            }
-            return null;
-        };
+    /**
+     * Returns the bytes the current thread allocates per transform, averaged over the iterations, or
+     * {@code -1} when the JVM does not account allocations per thread.
+     */
+    private long benchmarkAllocatedBytes(Transformer transformer, Object payload, int iterations) throws Exception {
+        if (!THREADS.isThreadAllocatedMemorySupported() || !THREADS.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+
+        long allocated = 0;
+        for (int i = 0; i < iterations; i++) {
+            long before = THREADS.getCurrentThreadAllocatedBytes();
+            transformer.transform(payload);
+            allocated += THREADS.getCurrentThreadAllocatedBytes() - before;
+        }
+        return allocated / iterations;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.micronaut.nimbus.service;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * The latency histograms of the benchmark services: nanosecond values with three significant digits, reported
+ * in fractional microseconds or milliseconds.
+ */
+final class LatencyHistograms {
+
+    private static final int PRECISION = 3;
+
+    private LatencyHistograms() {
+    }
+
+    static Histogram create() {
+        return new Histogram(PRECISION);
+    }
+
+    static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
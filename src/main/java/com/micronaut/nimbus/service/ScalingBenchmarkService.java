@@ -0,0 +1,162 @@
+package com.micronaut.nimbus.service;
+
+import com.micronaut.nimbus.engine.Transformer;
+import com.micronaut.nimbus.engine.TransformerRegistry;
+import com.micronaut.nimbus.models.transformer.ScalingResult;
+import jakarta.inject.Singleton;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * Measures how each engine scales with concurrency. For every engine and executor kind, the thread count
+ * doubles from 1 up to the maximum; at each step every thread runs the same number of transforms, all
+ * threads start together, and the point records throughput over the wall time of the step and the latency
+ * percentiles of all its transforms.
+ */
+@Singleton
+public class ScalingBenchmarkService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScalingBenchmarkService.class);
+
+    public static final int DEFAULT_OPERATIONS_PER_THREAD = 1_000;
+    private static final int MAX_OPERATIONS_PER_THREAD = 100_000;
+    private static final int MAX_THREADS = 256;
+    private static final int WARMUP_ITERATIONS = 1_000;
+
+    /**
+     * The executors a step can run on; each step gets a fresh executor of its kind.
+     */
+    enum ExecutorKind {
+        PLATFORM("platform", Executors::newFixedThreadPool),
+        VIRTUAL("virtual", threads -> Executors.newVirtualThreadPerTaskExecutor());
+
+        private final String id;
+        private final IntFunction<ExecutorService> factory;
+
+        ExecutorKind(String id, IntFunction<ExecutorService> factory) {
+            this.id = id;
+            this.factory = factory;
+        }
+    }
+
+    private final TransformerRegistry transformers;
+
+    public ScalingBenchmarkService(TransformerRegistry transformers) {
+        this.transformers = transformers;
+    }
+
+    public static int defaultMaxThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Runs the scaling benchmark for the given engine, or for every registered engine when {@code engine}
+     * is {@code null}.
+     *
+     * @throws IllegalArgumentException if the engine is unknown or the counts are out of range
+     */
+    public ScalingResult scale(Object payload, String engine, int maxThreads, int operationsPerThread) {
+        if (maxThreads < 1 || maxThreads > MAX_THREADS) {
+            throw new IllegalArgumentException("maxThreads must be between 1 and " + MAX_THREADS);
+        }
+        if (operationsPerThread < 1 || operationsPerThread > MAX_OPERATIONS_PER_THREAD) {
+            throw new IllegalArgumentException("operations must be between 1 and " + MAX_OPERATIONS_PER_THREAD);
+        }
+        List<Transformer> engines = engine == null ? List.copyOf(transformers.all()) : List.of(transformers.get(engine));
+        LOG.info("Starting scaling benchmark of {} up to {} threads", engines.stream().map(Transformer::id).toList(), maxThreads);
+
+        List<ScalingResult.ScalingPoint> points = new ArrayList<>();
+        try {
+            for (Transformer transformer : engines) {
+                for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                    transformer.transform(payload);
+                }
+                for (ExecutorKind kind : ExecutorKind.values()) {
+                    for (int threads : threadCounts(maxThreads)) {
+                        points.add(measure(transformer, payload, kind, threads, operationsPerThread));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Scaling benchmark interrupted", e);
+        } catch (Exception e) {
+            LOG.error("Error during scaling benchmark: {}", e.getMessage(), e);
+            throw new RuntimeException("Scaling benchmark failed. Please check the logs for details.", e);
+        }
+
+        LOG.info("Scaling benchmark completed with {} points", points.size());
+        return new ScalingResult(maxThreads, operationsPerThread, Runtime.getRuntime().availableProcessors(), points);
+    }
+
+    /**
+     * 1, 2, 4, ... doubling up to {@code maxThreads}, which is always the last step.
+     */
+    static List<Integer> threadCounts(int maxThreads) {
+        List<Integer> counts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(maxThreads);
+        return counts;
+    }
+
+    private ScalingResult.ScalingPoint measure(Transformer transformer, Object payload, ExecutorKind kind,
+                                               int threads, int operations) throws Exception {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Histogram>> workers = new ArrayList<>(threads);
+
+        try (ExecutorService executor = kind.factory.apply(threads)) {
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    Histogram histogram = LatencyHistograms.create();
+                    ready.countDown();
+                    start.await();
+                    for (int op = 0; op < operations; op++) {
+                        long begin = System.nanoTime();
+                        transformer.transform(payload);
+                        histogram.recordValue(System.nanoTime() - begin);
+                    }
+                    return histogram;
+                }));
+            }
+
+            ready.await();
+            long begin = System.nanoTime();
+            start.countDown();
+            Histogram latencies = LatencyHistograms.create();
+            for (Future<Histogram> worker : workers) {
+                latencies.add(result(worker));
+            }
+            long elapsed = System.nanoTime() - begin;
+
+            long total = (long) threads * operations;
+            return new ScalingResult.ScalingPoint(transformer.id(), kind.id, threads, total,
+                    total * 1_000_000_000.0 / elapsed,
+                    LatencyHistograms.micros(latencies.getValueAtPercentile(50)),
+                    LatencyHistograms.micros(latencies.getValueAtPercentile(90)),
+                    LatencyHistograms.micros(latencies.getValueAtPercentile(99)),
+                    LatencyHistograms.micros(latencies.getValueAtPercentile(99.9)),
+                    LatencyHistograms.micros(latencies.getMaxValue()));
+        }
+    }
+
+    private static Histogram result(Future<Histogram> worker) throws Exception {
+        try {
+            return worker.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+}
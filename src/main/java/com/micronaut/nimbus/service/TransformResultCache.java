@@ -0,0 +1,133 @@
+package com.micronaut.nimbus.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.micronaut.nimbus.engine.WireFormat;
+import com.micronaut.nimbus.models.transformer.CacheStatsResult;
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+/**
+ * Serialized transform results keyed by the request body, the model class, the engine id and the wire formats
+ * of the body and of the result. Bodies are compared byte for byte, so a hit is always the output the engine
+ * would have produced; the hash of the body is computed once per request and only selects the bucket.
+ * <p>
+ * The cache is bounded by {@code nimbus.cache.max-bytes}, counting both the body held by the key and the
+ * cached output, and evicts with Caffeine's W-TinyLFU policy. It is off unless {@code nimbus.cache.enabled} is
+ * {@code true}; while it is off, nothing is stored and every lookup misses without being counted.
+ */
+@Singleton
+public class TransformResultCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TransformResultCache.class);
+
+    /**
+     * Approximate fixed cost of an entry: the key, its two arrays and the cache node.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final Cache<Key, byte[]> cache;
+    private final long maxBytes;
+
+    public TransformResultCache(@Value("${nimbus.cache.enabled:false}") boolean enabled,
+                                @Value("${nimbus.cache.max-bytes:67108864}") long maxBytes) {
+        this.maxBytes = maxBytes;
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("nimbus.cache.max-bytes must be positive");
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key key, byte[] result) -> ENTRY_OVERHEAD_BYTES + key.body.length + result.length)
+                .recordStats()
+                .build();
+        LOG.info("Transform result cache enabled with a bound of {} bytes", maxBytes);
+    }
+
+    public boolean enabled() {
+        return cache != null;
+    }
+
+    /**
+     * Returns the cached output for the body, or {@code null} on a miss or when the cache is disabled.
+     */
+    public byte[] get(Class<?> type, String engine, WireFormat input, WireFormat output, byte[] body) {
+        return cache == null ? null : cache.getIfPresent(new Key(type, engine, input, output, body));
+    }
+
+    /**
+     * Caches the output for the body. The arrays are kept as given and must not be modified afterwards.
+     */
+    public void put(Class<?> type, String engine, WireFormat input, WireFormat output, byte[] body,
+                    byte[] result) {
+        if (cache != null) {
+            cache.put(new Key(type, engine, input, output, body), result);
+        }
+    }
+
+    /**
+     * The counters and size of the cache, after running the maintenance that is due so that pending evictions
+     * are included.
+     */
+    public CacheStatsResult stats() {
+        if (cache == null) {
+            return new CacheStatsResult(false, 0, 0, 0, 0, 0, 0, maxBytes);
+        }
+        cache.cleanUp();
+        CacheStats stats = cache.stats();
+        long weightedBytes = cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+        return new CacheStatsResult(true, stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                stats.evictionWeight(), cache.estimatedSize(), weightedBytes, maxBytes);
+    }
+
+    private static final class Key {
+
+        private final Class<?> type;
+        private final String engine;
+        private final WireFormat input;
+        private final WireFormat output;
+        private final byte[] body;
+        private final int hash;
+
+        private Key(Class<?> type, String engine, WireFormat input, WireFormat output, byte[] body) {
+            this.type = type;
+            this.engine = engine;
+            this.input = input;
+            this.output = output;
+            this.body = body;
+            int hash = 31 * type.hashCode() + engine.hashCode();
+            hash = 31 * hash + input.ordinal();
+            hash = 31 * hash + output.ordinal();
+            this.hash = 31 * hash + Arrays.hashCode(body);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            return o instanceof Key other
+                    && hash == other.hash
+                    && type == other.type
+                    && input == other.input
+                    && output == other.output
+                    && engine.equals(other.engine)
+                    && Arrays.equals(body, other.body);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
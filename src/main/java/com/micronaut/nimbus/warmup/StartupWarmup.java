@@ -0,0 +1,239 @@
+package com.micronaut.nimbus.warmup;
+
+import com.micronaut.nimbus.engine.TokenRewriteTransformer;
+import com.micronaut.nimbus.engine.Transformer;
+import com.micronaut.nimbus.engine.TransformerRegistry;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.core.beans.BeanIntrospection;
+import io.micronaut.core.beans.BeanIntrospector;
+import io.micronaut.core.beans.BeanProperty;
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.serde.ObjectMapper;
+import io.micronaut.serde.annotation.Serdeable;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Warms the engines up when the application starts, so that the first requests after a deploy neither
+ * resolve plans nor run in the interpreter. Every engine first {@linkplain Transformer#prepare prepares} each
+ * {@code @Serdeable} model. Then a synthetic instance of each model, with every leaf property set, is bound
+ * from its JSON and written by every engine {@code nimbus.warmup.iterations} times, which is enough for the
+ * JIT to compile the request path. The rewrite engine transforms the same JSON.
+ * <p>
+ * The warm-up runs on a thread of its own while the server starts, and {@link WarmupReadinessIndicator}
+ * reports the application as not ready until it is over. Nothing goes through the service, so the result
+ * cache and the transform metrics only see real requests.
+ * <p>
+ * With {@code nimbus.warmup.exit-when-done} the application exits once warmed up, which makes it a training
+ * run for an AppCDS archive.
+ */
+@Singleton
+@Requires(property = "nimbus.warmup.enabled", value = "true")
+public class StartupWarmup {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StartupWarmup.class);
+
+    /**
+     * Nesting depth up to which synthetic instances get nested models, which also stops recursive models.
+     */
+    private static final int MAX_DEPTH = 4;
+    private static final Map<Class<?>, Object> LEAF_VALUES = Map.ofEntries(
+            Map.entry(int.class, 1), Map.entry(Integer.class, 1),
+            Map.entry(long.class, 1L), Map.entry(Long.class, 1L),
+            Map.entry(short.class, (short) 1), Map.entry(Short.class, (short) 1),
+            Map.entry(byte.class, (byte) 1), Map.entry(Byte.class, (byte) 1),
+            Map.entry(double.class, 1.5), Map.entry(Double.class, 1.5),
+            Map.entry(float.class, 1.5f), Map.entry(Float.class, 1.5f),
+            Map.entry(boolean.class, true), Map.entry(Boolean.class, true),
+            Map.entry(char.class, 'w'), Map.entry(Character.class, 'w'));
+
+    enum State {
+        PENDING, RUNNING, DONE, FAILED
+    }
+
+    private final TransformerRegistry transformers;
+    private final TokenRewriteTransformer rewriteTransformer;
+    private final ObjectMapper mapper;
+    private final int iterations;
+    private final List<String> engines;
+    private final boolean exitWhenDone;
+    private volatile State state = State.PENDING;
+    private volatile int models;
+    private volatile long elapsedMillis;
+
+    public StartupWarmup(TransformerRegistry transformers, TokenRewriteTransformer rewriteTransformer,
+                         ObjectMapper mapper,
+                         @Value("${nimbus.warmup.iterations:10000}") int iterations,
+                         @Value("${nimbus.warmup.engines:}") String engines,
+                         @Value("${nimbus.warmup.exit-when-done:false}") boolean exitWhenDone) {
+        if (iterations < 0) {
+            throw new IllegalArgumentException("nimbus.warmup.iterations must not be negative");
+        }
+        this.transformers = transformers;
+        this.rewriteTransformer = rewriteTransformer;
+        this.mapper = mapper;
+        this.iterations = iterations;
+        this.engines = engines.isBlank()
+                ? List.copyOf(transformers.ids())
+                : Arrays.stream(engines.split(",")).map(String::trim).toList();
+        this.exitWhenDone = exitWhenDone;
+        // Fails startup on a misspelt engine rather than after it
+        this.engines.forEach(transformers::get);
+    }
+
+    @EventListener
+    public void onStartup(StartupEvent event) {
+        Thread.ofPlatform().name("nimbus-warmup").daemon().start(() -> {
+            warmUp();
+            if (exitWhenDone) {
+                // A training run, such as the one of the cdsArchive task: the archive is dumped on exit
+                System.exit(state == State.DONE ? 0 : 1);
+            }
+        });
+    }
+
+    /**
+     * Whether the warm-up is over. A failed warm-up is over too: the application is slower at first, not
+     * broken.
+     */
+    boolean finished() {
+        State current = state;
+        return current == State.DONE || current == State.FAILED;
+    }
+
+    State state() {
+        return state;
+    }
+
+    int models() {
+        return models;
+    }
+
+    long elapsedMillis() {
+        return elapsedMillis;
+    }
+
+    void warmUp() {
+        state = State.RUNNING;
+        long start = System.nanoTime();
+        try {
+            List<Class<?>> types = new ArrayList<>();
+            List<byte[]> samples = new ArrayList<>();
+            Collection<BeanIntrospection<Object>> models = BeanIntrospector.SHARED.findIntrospections(Serdeable.class);
+            for (BeanIntrospection<Object> introspection : models) {
+                Class<?> type = introspection.getBeanType();
+                byte[] sample = prepare(type) ? json(introspection) : null;
+                if (sample != null) {
+                    types.add(type);
+                    samples.add(sample);
+                }
+            }
+            this.models = types.size();
+
+            OutputStream sink = OutputStream.nullOutputStream();
+            for (String engine : engines) {
+                Transformer transformer = transformers.get(engine);
+                for (int i = 0; i < iterations; i++) {
+                    for (int j = 0; j < types.size(); j++) {
+                        transformer.write(mapper.readValue(samples.get(j), types.get(j)), sink);
+                    }
+                }
+            }
+            for (int i = 0; i < iterations; i++) {
+                for (int j = 0; j < types.size(); j++) {
+                    rewriteTransformer.transform(types.get(j), samples.get(j), sink);
+                }
+            }
+            elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            state = State.DONE;
+            LOG.info("Warmed up engines {} and rewrite with {} models, {} iterations each, in {} ms",
+                    engines, types.size(), iterations, elapsedMillis);
+        } catch (IOException | IllegalAccessException | RuntimeException e) {
+            elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            state = State.FAILED;
+            LOG.warn("Warm-up failed after {} ms, the first transforms will be slower", elapsedMillis, e);
+        }
+    }
+
+    /**
+     * Prepares the model in every engine. Returns {@code false}, leaving it out of the load, when its fields
+     * cannot be read: its transforms would fail anyway.
+     */
+    private boolean prepare(Class<?> type) {
+        try {
+            for (String engine : engines) {
+                transformers.get(engine).prepare(type);
+            }
+            TokenRewriteTransformer.program(type);
+            return true;
+        } catch (IllegalAccessException e) {
+            LOG.debug("Not warming up {}: {}", type.getName(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * The JSON of a synthetic instance of the model, or {@code null} when there is none or it does not bind
+     * back.
+     */
+    byte[] json(BeanIntrospection<Object> introspection) {
+        Object sample = sample(introspection, 0, new HashSet<>());
+        if (sample == null) {
+            return null;
+        }
+        try {
+            byte[] json = mapper.writeValueAsBytes(sample);
+            mapper.readValue(json, introspection.getBeanType());
+            return json;
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("No synthetic {}: {}", introspection.getBeanType().getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Creates an instance with every leaf property set and nested models filled in up to {@link #MAX_DEPTH},
+     * or returns {@code null} for a model that cannot be created without arguments.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object sample(BeanIntrospection<Object> introspection, int depth, Set<Class<?>> visiting) {
+        Object bean;
+        try {
+            bean = introspection.instantiate();
+        } catch (RuntimeException e) {
+            LOG.debug("No synthetic {}: {}", introspection.getBeanType().getName(), e.getMessage());
+            return null;
+        }
+        visiting.add(introspection.getBeanType());
+        for (BeanProperty<Object, Object> property : introspection.getBeanProperties()) {
+            if (property.isReadOnly()) {
+                continue;
+            }
+            Class<?> type = property.getType();
+            Object value = type == String.class ? property.getName() + "_warmup" : LEAF_VALUES.get(type);
+            if (value == null && depth < MAX_DEPTH && !visiting.contains(type)) {
+                value = BeanIntrospector.SHARED.findIntrospection((Class<Object>) type)
+                        .map(nested -> sample(nested, depth + 1, visiting))
+                        .orElse(null);
+            }
+            if (value != null) {
+                property.set(bean, value);
+            }
+        }
+        visiting.remove(introspection.getBeanType());
+        return bean;
+    }
+}
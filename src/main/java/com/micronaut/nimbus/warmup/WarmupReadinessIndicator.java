@@ -0,0 +1,40 @@
+package com.micronaut.nimbus.warmup;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.health.HealthStatus;
+import io.micronaut.management.health.indicator.HealthIndicator;
+import io.micronaut.management.health.indicator.HealthResult;
+import io.micronaut.management.health.indicator.annotation.Readiness;
+import jakarta.inject.Singleton;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Reports the application as not ready on {@code /health/readiness} while the {@link StartupWarmup} runs, so
+ * that no traffic is routed to an instance that would serve it from the interpreter.
+ */
+@Singleton
+@Readiness
+@Requires(beans = StartupWarmup.class)
+public class WarmupReadinessIndicator implements HealthIndicator {
+
+    static final String NAME = "warmup";
+
+    private final StartupWarmup warmup;
+
+    public WarmupReadinessIndicator(StartupWarmup warmup) {
+        this.warmup = warmup;
+    }
+
+    @Override
+    public Publisher<HealthResult> getResult() {
+        return Mono.just(HealthResult.builder(NAME, warmup.finished() ? HealthStatus.UP : HealthStatus.DOWN)
+                .details(Map.of(
+                        "state", warmup.state().name(),
+                        "models", warmup.models(),
+                        "elapsedMillis", warmup.elapsedMillis()))
+                .build());
+    }
+}
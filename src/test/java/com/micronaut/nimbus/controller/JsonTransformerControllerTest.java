@@ -0,0 +1,78 @@
+package com.micronaut.nimbus.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micronaut.nimbus.engine.WireFormat;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@MicronautTest
+@Property(name = "nimbus.cache.enabled", value = "true")
+class JsonTransformerControllerTest {
+
+    private static final String BODY = "{\"userId\": \"user_1\", \"name\": \"jane\"}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Inject
+    @Client("/")
+    HttpClient client;
+
+    @Test
+    void repeatedBodiesAreAnsweredFromTheCache() throws Exception {
+        JsonNode before = cacheStats();
+        String first = transform();
+        String second = transform();
+
+        Assertions.assertEquals(mapper.readTree(first), mapper.readTree(second));
+        JsonNode after = cacheStats();
+        Assertions.assertTrue(after.get("enabled").asBoolean());
+        Assertions.assertEquals(before.get("misses").asLong() + 1, after.get("misses").asLong());
+        Assertions.assertEquals(before.get("hits").asLong() + 1, after.get("hits").asLong());
+    }
+
+    @Test
+    void everyWireFormatSkipsUnknownProperties() throws Exception {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("userId", "user_7");
+        body.put("unknown", Map.of("nested", List.of(1, 2)));
+        for (WireFormat format : WireFormat.values()) {
+            String result = client.toBlocking().retrieve(HttpRequest.POST("/transformer/transform?engine=gson",
+                            format.mapper().writeValueAsBytes(body))
+                    .contentType(format.mediaType())
+                    .accept(MediaType.APPLICATION_JSON_TYPE));
+            Assertions.assertEquals("7", mapper.readTree(result).get("userId").asText(), format.toString());
+        }
+    }
+
+    @Test
+    void anUnsupportedContentTypeIsRejected() {
+        HttpClientResponseException e = Assertions.assertThrows(HttpClientResponseException.class,
+                () -> client.toBlocking().exchange(HttpRequest.POST("/transformer/transform", BODY)
+                        .contentType(MediaType.TEXT_PLAIN_TYPE)));
+        Assertions.assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, e.getStatus());
+    }
+
+    private String transform() {
+        return client.toBlocking().retrieve(HttpRequest.POST("/transformer/transform?engine=jackson", BODY)
+                .contentType(MediaType.APPLICATION_JSON_TYPE)
+                .accept(MediaType.APPLICATION_JSON_TYPE));
+    }
+
+    private JsonNode cacheStats() throws Exception {
+        return mapper.readTree(client.toBlocking().retrieve("/transformer/cache"));
+    }
+}
@@ -0,0 +1,52 @@
+package com.micronaut.nimbus.controller;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+class ResponseBuffersTest {
+
+    @Test
+    void theBufferHoldsTheWrittenBody() throws Exception {
+        ByteBuf buffer = ResponseBuffers.write(out -> out.write("{}".getBytes(StandardCharsets.UTF_8)));
+        try {
+            Assertions.assertEquals("{}", buffer.toString(StandardCharsets.UTF_8));
+            Assertions.assertEquals(1, buffer.refCnt());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    void theBufferIsReleasedWhenTheBodyFailsWithARuntimeException() {
+        AtomicReference<ByteBuf> written = new AtomicReference<>();
+        Assertions.assertThrows(IllegalStateException.class, () -> ResponseBuffers.write(out -> {
+            written.set(((ByteBufOutputStream) out).buffer());
+            out.write('{');
+            throw new IllegalStateException("engine failure");
+        }));
+        Assertions.assertEquals(0, written.get().refCnt());
+    }
+
+    @Test
+    void theBufferIsReleasedWhenTheBodyFailsWithACheckedException() {
+        AtomicReference<ByteBuf> written = new AtomicReference<>();
+        ResponseBuffers.BodyWriter<IllegalAccessException> failing = out -> {
+            written.set(((ByteBufOutputStream) out).buffer());
+            throw new IllegalAccessException("private field");
+        };
+        Assertions.assertThrows(IllegalAccessException.class, () -> ResponseBuffers.write(failing));
+        Assertions.assertEquals(0, written.get().refCnt());
+
+        Assertions.assertThrows(IOException.class, () -> ResponseBuffers.write(out -> {
+            written.set(((ByteBufOutputStream) out).buffer());
+            throw new IOException("invalid body");
+        }));
+        Assertions.assertEquals(0, written.get().refCnt());
+    }
+}
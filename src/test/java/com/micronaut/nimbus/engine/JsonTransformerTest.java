@@ -0,0 +1,640 @@
+package com.micronaut.nimbus.engine;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micronaut.nimbus.annotations.JsonCleanPrefix;
+import com.micronaut.nimbus.annotations.JsonNestedTransform;
+import com.micronaut.nimbus.annotations.JsonRename;
+import com.micronaut.nimbus.annotations.JsonToLower;
+import com.micronaut.nimbus.annotations.JsonToUpper;
+import com.micronaut.nimbus.models.transformer.UserExample;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+class JsonTransformerTest {
+
+    static final String EXPECTED = """
+            {
+              "userId": "12345",
+              "name": "JOHN DOE",
+              "email": "john.doe@example.com",
+              "address": {
+                "home": {"street": "123 Main Street", "city": "Hometown", "zipCode": "12345"},
+                "office": null
+              },
+              "test": {"order": {"ID": "order_001"}},
+              "items": {"name": "Laptop", "quantity": 1, "price": 1200.5},
+              "orders": {"totalAmount": 1252.48}
+            }
+            """;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    static UserExample sample() {
+        UserExample user = new UserExample();
+        user.setUserId("user_12345");
+        user.setName("john doe");
+        user.setEmail("John.Doe@Example.COM");
+
+        UserExample.AddressDto home = new UserExample.AddressDto();
+        home.setStreet("123 Main Street");
+        home.setCity("Hometown");
+        home.setZipCode("12345");
+        user.setHomeAddress(home);
+
+        UserExample.ItemDto item = new UserExample.ItemDto();
+        item.setName("Laptop");
+        item.setQuantity(1);
+        item.setPrice(1200.50);
+
+        UserExample.OrderDto order = new UserExample.OrderDto();
+        order.setOrderId("order_001");
+        order.setItems(item);
+        order.setTotalAmount(1252.48);
+        user.setOrders(order);
+        return user;
+    }
+
+    @Test
+    void transformerIsGeneratedForAnnotatedModels() {
+        Assertions.assertNotNull(GeneratedTransformers.find(UserExample.class));
+        Assertions.assertNotNull(GeneratedTransformers.find(UserExample.OrderDto.class));
+        Assertions.assertNull(GeneratedTransformers.find(UserExample.AddressDto.class));
+    }
+
+    @Test
+    void generatedTransformerAppliesAnnotationRules() throws Exception {
+        Assertions.assertEquals(mapper.readTree(EXPECTED), new JsonTransformer().transform(sample()));
+    }
+
+    @Test
+    void generatedTransformerHandsNestedSubclassesToThePlans() throws Exception {
+        UserExample user = sample();
+        HomeAddress home = new HomeAddress();
+        home.setStreet("123 Main Street");
+        home.floor = "3";
+        user.setHomeAddress(home);
+
+        JsonNode expected = JsonTransformer.transformTree(user, PlanSource.REFLECTION);
+        Assertions.assertEquals("3", expected.path("address").path("home").path("floor").asText());
+        Assertions.assertEquals(expected, new JsonTransformer().transform(user));
+        Assertions.assertEquals(expected, mapper.readTree(new GsonJsonTransformer().transform(user).toString()));
+    }
+
+    @Test
+    void gsonEngineFollowsTheSamePlan() throws Exception {
+        Assertions.assertEquals(mapper.readTree(EXPECTED),
+                mapper.readTree(new GsonJsonTransformer().transform(sample()).toString()));
+    }
+
+    @Test
+    void gsonEngineStreamsTheSameDocument() throws Exception {
+        GsonJsonTransformer gson = new GsonJsonTransformer();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        gson.write(sample(), out);
+        Assertions.assertEquals(mapper.readTree(EXPECTED), mapper.readTree(out.toByteArray()));
+        Assertions.assertSame(gson.gson().getAdapter(UserExample.class), gson.gson().getAdapter(UserExample.class));
+    }
+
+    @Test
+    void gsonEngineStillBindsModels() throws Exception {
+        String json = mapper.writeValueAsString(sample());
+        UserExample user = new GsonJsonTransformer().gson().fromJson(json, UserExample.class);
+        Assertions.assertEquals("user_12345", user.getUserId());
+        Assertions.assertEquals("Hometown", user.getHomeAddress().getCity());
+        Assertions.assertEquals("Laptop", user.getOrders().getItems().getName());
+        Assertions.assertEquals(json, mapper.writeValueAsString(user));
+    }
+
+    @Test
+    void planResolvesPathsOnce() throws Exception {
+        TransformPlan plan = TransformPlan.of(UserExample.class);
+        Assertions.assertSame(plan, TransformPlan.of(UserExample.class));
+
+        FieldPlan home = plan.fields().get(fieldIndex(plan, "homeAddress"));
+        Assertions.assertTrue(home.absolute());
+        Assertions.assertArrayEquals(new String[]{"address", "home"}, home.segments());
+        Assertions.assertEquals(FieldPlan.Kind.NESTED, home.kind());
+    }
+
+    @Test
+    void siblingPathsShareTrieNodes() throws Exception {
+        TransformPlan plan = TransformPlan.of(UserExample.class);
+        PathTrie trie = plan.trie();
+
+        // homeAddress and officeAddress both go below the absolute "address" object
+        int home = trie.fieldTarget(fieldIndex(plan, "homeAddress"));
+        int office = trie.fieldTarget(fieldIndex(plan, "officeAddress"));
+        Assertions.assertEquals(trie.parent(home), trie.parent(office));
+        Assertions.assertEquals("address", trie.key(trie.parent(home)));
+        Assertions.assertEquals(PathTrie.ROOT, trie.parent(trie.parent(home)));
+        Assertions.assertEquals(PathTrie.BASE, trie.fieldParent(fieldIndex(plan, "userId")));
+    }
+
+    @Test
+    void sampledTransformRecordsFieldEvents() throws Exception {
+        Path dump = Files.createTempFile("nimbus", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.micronaut.nimbus.FieldTransform");
+            recording.start();
+            TransformProfiler.sampleEvery(1);
+            Assertions.assertEquals(mapper.readTree(EXPECTED), new JsonTransformer().transform(sample()));
+            recording.stop();
+            recording.dump(dump);
+
+            RecordedEvent name = RecordingFile.readAllEvents(dump).stream()
+                    .filter(event -> "name".equals(event.getString("field")))
+                    .findFirst()
+                    .orElseThrow();
+            Assertions.assertEquals("jackson", name.getString("engine"));
+            Assertions.assertEquals("JsonToUpper", name.getString("annotations"));
+        } finally {
+            TransformProfiler.sampleEvery(0);
+            Files.delete(dump);
+        }
+    }
+
+    @Test
+    void gsonModelElementsArePartOfTheirTransform() throws Exception {
+        Cart cart = new Cart();
+        cart.lines = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            cart.lines.add(new Cart.Line());
+        }
+        Path dump = Files.createTempFile("nimbus", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.micronaut.nimbus.Transform");
+            recording.start();
+            new GsonJsonTransformer().transform(cart);
+            recording.stop();
+            recording.dump(dump);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump).stream()
+                    .filter(event -> event.getEventType().getName().equals("com.micronaut.nimbus.Transform"))
+                    .toList();
+            Assertions.assertEquals(1, events.size(), events.toString());
+        } finally {
+            Files.delete(dump);
+        }
+    }
+
+    @Test
+    void streamingEngineWritesTheSameDocument() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new StreamingJsonTransformer(new JsonTransformer()).transform(sample(), out);
+        Assertions.assertEquals(mapper.readTree(EXPECTED), mapper.readTree(out.toByteArray()));
+        Assertions.assertTrue(OutputLayout.of(UserExample.class).streamable());
+    }
+
+    @Test
+    void streamingEnginesWriteNestedSubclassesWithTheirFields() throws Exception {
+        PluginModel model = new PluginModel();
+        model.name = "search";
+        model.count = 3;
+        PluginModel.ExtendedInfo extended = new PluginModel.ExtendedInfo();
+        extended.version = "v_2.0";
+        extended.build = "nightly";
+        model.info = extended;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new StreamingJsonTransformer(new JsonTransformer()).transform(model, out);
+        ByteArrayOutputStream gsonOut = new ByteArrayOutputStream();
+        new GsonJsonTransformer().write(model, gsonOut);
+
+        JsonNode expected = mapper.readTree("""
+                {"name": "SEARCH", "count": 3, "meta": {"plugin": {"version": "2.0", "build": "nightly"}}}
+                """);
+        Assertions.assertEquals(expected, JsonTransformer.transformTree(model, PlanSource.REFLECTION));
+        Assertions.assertEquals(expected, new JsonTransformer().transform(model));
+        Assertions.assertEquals(expected, mapper.readTree(out.toByteArray()));
+        Assertions.assertEquals(expected, mapper.readTree(gsonOut.toByteArray()));
+    }
+
+    @Test
+    void everyWireFormatCarriesTheSameDocument() throws Exception {
+        List<Transformer> engines = List.of(new JsonTransformer(), new GsonJsonTransformer(),
+                new StreamingJsonTransformer(new JsonTransformer()));
+        for (WireFormat format : WireFormat.values()) {
+            ObjectMapper formatMapper = format.mapper();
+            Object input = formatMapper.readValue(formatMapper.writeValueAsBytes(sample()), UserExample.class);
+            for (Transformer engine : engines) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try (JsonGenerator generator = formatMapper.createGenerator(out)) {
+                    engine.write(input, generator);
+                }
+                Assertions.assertEquals(mapper.readTree(EXPECTED), formatMapper.readTree(out.toByteArray()),
+                        engine.id() + " in " + format);
+            }
+        }
+    }
+
+    @Test
+    void everyWireFormatSkipsUnknownProperties() throws Exception {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("userId", "user_1");
+        body.put("unknown", Map.of("nested", List.of(1, 2)));
+        body.put("name", "jane");
+        for (WireFormat format : WireFormat.values()) {
+            ObjectMapper formatMapper = format.mapper();
+            UserExample user = formatMapper.readValue(formatMapper.writeValueAsBytes(body), UserExample.class);
+            Assertions.assertEquals("user_1", user.getUserId(), format.toString());
+            Assertions.assertEquals("jane", user.getName(), format.toString());
+        }
+    }
+
+    static final String REWRITE_INPUT = """
+            {
+              "userId": "user_12345", "name": "john doe", "email": "John.Doe@Example.COM",
+              "unknown": [1, {"ignored": true}],
+              "homeAddress": {"street": "123 Main Street", "city": "Hometown", "zipCode": "12345"},
+              "officeAddress": null,
+              "orders": {
+                "orderId": "order_001",
+                "items": {"name": "Laptop", "quantity": 1, "price": 1200.50},
+                "totalAmount": 1252.48
+              }
+            }
+            """;
+
+    @Test
+    void rewriteEngineTransformsTheTokenStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TokenRewriteTransformer(new StreamingJsonTransformer(new JsonTransformer()))
+                .transform(UserExample.class, REWRITE_INPUT.getBytes(), out);
+        Assertions.assertEquals(mapper.readTree(EXPECTED), mapper.readTree(out.toByteArray()));
+
+        StringWriter writer = new StringWriter();
+        new TokenRewriteTransformer(new StreamingJsonTransformer(new JsonTransformer()))
+                .transform(UserExample.class, REWRITE_INPUT.getBytes(StandardCharsets.UTF_8), writer);
+        Assertions.assertEquals(mapper.readTree(EXPECTED), mapper.readTree(writer.toString()));
+    }
+
+    @Test
+    void rewriteEngineParsesAChunkedBody() throws Exception {
+        byte[] body = REWRITE_INPUT.getBytes();
+        List<byte[]> chunks = new ArrayList<>();
+        for (int offset = 0; offset < body.length; offset += 7) {
+            chunks.add(Arrays.copyOfRange(body, offset, Math.min(offset + 7, body.length)));
+        }
+        chunks.add(2, new byte[0]);
+        Publisher<byte[]> publisher = subscriber -> subscriber.onSubscribe(new Subscription() {
+            private int next;
+
+            @Override
+            public void request(long n) {
+                for (long i = 0; i < n && next < chunks.size(); i++) {
+                    subscriber.onNext(chunks.get(next++));
+                }
+                if (next == chunks.size()) {
+                    next++;
+                    subscriber.onComplete();
+                }
+            }
+
+            @Override
+            public void cancel() {
+                next = chunks.size() + 1;
+            }
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TokenRewriteTransformer(new StreamingJsonTransformer(new JsonTransformer()))
+                .transform(UserExample.class, publisher, out);
+        Assertions.assertEquals(mapper.readTree(EXPECTED), mapper.readTree(out.toByteArray()));
+    }
+
+    @Test
+    void introspectionEngineProducesTheSameDocument() throws Exception {
+        Assertions.assertEquals(mapper.readTree(EXPECTED), new IntrospectionTransformer().transform(sample()));
+    }
+
+    @Test
+    void collectionElementsGetTheFieldRules() throws Exception {
+        Cart cart = new Cart();
+        cart.tags = List.of("new", "sale");
+        cart.quantities = new int[]{1, 2, 3};
+        cart.skus = Map.of("laptop", "sku_42");
+        cart.note = Optional.of("Gift WRAP");
+        Cart.Line line = new Cart.Line();
+        line.id = "line_1";
+        line.price = 10.5;
+        cart.lines = List.of(line);
+
+        String expected = """
+                {
+                  "tags": ["NEW", "SALE"],
+                  "quantities": [1, 2, 3],
+                  "skus": {"laptop": "42"},
+                  "note": "gift wrap",
+                  "lines": [{"id": "1", "price": 10.5}]
+                }
+                """;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new StreamingJsonTransformer(new JsonTransformer()).transform(cart, out);
+        ByteArrayOutputStream gsonOut = new ByteArrayOutputStream();
+        new GsonJsonTransformer().write(cart, gsonOut);
+
+        TransformPlan plan = TransformPlan.of(Cart.class);
+        Assertions.assertEquals(FieldPlan.Kind.PRIMITIVE_ARRAY,
+                plan.fields().get(fieldIndex(plan, "quantities")).kind());
+        Assertions.assertEquals(mapper.readTree(expected), new JsonTransformer().transform(cart));
+        Assertions.assertEquals(mapper.readTree(expected),
+                mapper.readTree(new GsonJsonTransformer().transform(cart).toString()));
+        Assertions.assertEquals(mapper.readTree(expected), mapper.readTree(out.toByteArray()));
+        Assertions.assertEquals(mapper.readTree(expected), mapper.readTree(gsonOut.toByteArray()));
+    }
+
+    @Test
+    void rewriteEngineFindsModelsInNestedContainers() throws Exception {
+        Cart.Line line = new Cart.Line();
+        line.id = "line_1";
+        line.price = 2;
+        Shelf shelf = new Shelf();
+        shelf.rows = List.of(List.of(line));
+        shelf.aisles = Map.of("a", List.of(line));
+
+        String expected = """
+                {"rows": [[{"id": "1", "price": 2.0}]], "aisles": {"a": [{"id": "1", "price": 2.0}]}}
+                """;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TokenRewriteTransformer(new StreamingJsonTransformer(new JsonTransformer())).transform(Shelf.class, """
+                {"rows": [[{"id": "line_1", "price": 2}]], "aisles": {"a": [{"id": "line_1", "price": 2}]}}
+                """.getBytes(StandardCharsets.UTF_8), out);
+
+        Assertions.assertEquals(mapper.readTree(expected), new JsonTransformer().transform(shelf));
+        Assertions.assertEquals(mapper.readTree(expected), mapper.readTree(out.toByteArray()));
+    }
+
+    @Test
+    void valueRulesMapAFinalSigmaAsTheWholeValue() throws Exception {
+        UserExample user = sample();
+        user.setEmail("ABΣ");
+        Cart cart = new Cart();
+        cart.tags = List.of();
+        cart.note = Optional.of("ABΣ");
+        StreamingJsonTransformer streaming = new StreamingJsonTransformer(new JsonTransformer());
+        TokenRewriteTransformer rewrite = new TokenRewriteTransformer(streaming);
+
+        Map<Object, String> inputs = Map.of(user, mapper.writeValueAsString(user),
+                cart, "{\"tags\": [], \"note\": \"ABΣ\"}");
+        for (Map.Entry<Object, String> entry : inputs.entrySet()) {
+            Object input = entry.getKey();
+            JsonNode expected = new JsonTransformer().transform(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            streaming.transform(input, out);
+            ByteArrayOutputStream gsonOut = new ByteArrayOutputStream();
+            new GsonJsonTransformer().write(input, gsonOut);
+            ByteArrayOutputStream rewriteOut = new ByteArrayOutputStream();
+            rewrite.transform(input.getClass(), entry.getValue().getBytes(StandardCharsets.UTF_8), rewriteOut);
+
+            Assertions.assertEquals(expected, mapper.readTree(out.toByteArray()));
+            Assertions.assertEquals(expected, mapper.readTree(gsonOut.toByteArray()));
+            Assertions.assertEquals(expected, mapper.readTree(rewriteOut.toByteArray()));
+        }
+        Assertions.assertEquals("abς", new JsonTransformer().transform(user).path("email").asText());
+        Assertions.assertEquals("abς", new JsonTransformer().transform(cart).path("note").asText());
+    }
+
+    @Test
+    void valueRulesIgnoreTheDefaultLocale() throws Exception {
+        Cart cart = new Cart();
+        cart.tags = List.of("istanbul", "straße", "");
+        cart.quantities = new int[0];
+        cart.skus = Map.of("short", "sku", "long", "sku_" + "x".repeat(100));
+        cart.note = Optional.of("TITLE");
+        cart.lines = List.of();
+        String input = """
+                {"tags": ["istanbul", "straße", ""], "quantities": [], "skus": {"short": "sku", "long": "sku_%s"},
+                 "note": "TITLE", "lines": []}
+                """.formatted("x".repeat(100));
+        String expected = """
+                {"tags": ["ISTANBUL", "STRASSE", ""], "quantities": [], "skus": {"short": "sku", "long": "%s"},
+                 "note": "title", "lines": []}
+                """.formatted("x".repeat(100));
+
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            StreamingJsonTransformer streaming = new StreamingJsonTransformer(new JsonTransformer());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            streaming.transform(cart, out);
+            ByteArrayOutputStream gsonOut = new ByteArrayOutputStream();
+            new GsonJsonTransformer().write(cart, gsonOut);
+            ByteArrayOutputStream rewriteOut = new ByteArrayOutputStream();
+            new TokenRewriteTransformer(streaming).transform(Cart.class, input.getBytes(StandardCharsets.UTF_8),
+                    rewriteOut);
+
+            Assertions.assertEquals(mapper.readTree(expected), new JsonTransformer().transform(cart));
+            Assertions.assertEquals(mapper.readTree(expected), mapper.readTree(out.toByteArray()));
+            Assertions.assertEquals(mapper.readTree(expected), mapper.readTree(gsonOut.toByteArray()));
+            Assertions.assertEquals(mapper.readTree(expected), mapper.readTree(rewriteOut.toByteArray()));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    void parallelTransformKeepsElementOrder() throws Exception {
+        Cart cart = new Cart();
+        cart.tags = new ArrayList<>();
+        cart.skus = new LinkedHashMap<>();
+        cart.lines = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            cart.tags.add("tag" + i);
+            cart.skus.put("item" + i, "sku_" + i);
+            Cart.Line line = new Cart.Line();
+            line.id = "line_" + i;
+            line.price = i;
+            cart.lines.add(line);
+        }
+        cart.note = Optional.empty();
+        Object sequentialJackson = new JsonTransformer().transform(cart);
+        String sequentialGson = new GsonJsonTransformer().transform(cart).toString();
+        ParallelTransforms.enable(16, 4);
+        try {
+            Assertions.assertEquals(sequentialJackson, new JsonTransformer().transform(cart));
+            Assertions.assertEquals(sequentialGson, new GsonJsonTransformer().transform(cart).toString());
+        } finally {
+            ParallelTransforms.disable();
+        }
+    }
+
+    @Test
+    void parallelTransformFallsBackWhenThePoolIsShutDown() throws Exception {
+        Object[] elements = new Object[64];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = i;
+        }
+        // A concurrent enable() or disable() shuts down the pool a transform may have just read
+        ForkJoinPool shutDown = new ForkJoinPool(2);
+        shutDown.shutdown();
+
+        List<String> results = ParallelTransforms.transformAll(shutDown, elements, String::valueOf);
+        Assertions.assertEquals(Arrays.stream(elements).map(String::valueOf).toList(), results);
+    }
+
+    @Test
+    void runtimeTransformerMatchesThePlans() throws Exception {
+        Cart cart = new Cart();
+        cart.tags = List.of("new");
+        cart.skus = Map.of("laptop", "sku_42");
+        cart.note = Optional.of("Gift WRAP");
+        PluginModel model = new PluginModel();
+        model.name = "search";
+        model.count = 3;
+        model.info = new PluginModel.Info();
+        model.info.version = "v_1.2";
+
+        for (Object input : List.of(cart, new Cart(), model, new PluginModel(), sample().getOrders())) {
+            GeneratedTransformer<Object> transformer = RuntimeTransformers.find(input.getClass());
+            Assertions.assertNotNull(transformer, input.getClass().getName());
+            Assertions.assertEquals(JsonTransformer.transformTree(input, PlanSource.REFLECTION),
+                    transformer.transform(input));
+        }
+
+        // A subclass of a nested model is transformed from the plans of its runtime class
+        PluginModel.ExtendedInfo extended = new PluginModel.ExtendedInfo();
+        extended.version = "v_2.0";
+        extended.build = "nightly";
+        model.info = extended;
+        Assertions.assertEquals(mapper.readTree("""
+                {"name": "SEARCH", "count": 3, "meta": {"plugin": {"version": "2.0", "build": "nightly"}}}
+                """), RuntimeTransformers.find(PluginModel.class).transform(model));
+    }
+
+    @Test
+    void runtimeTransformerIsUnloadedWithItsModel() throws Exception {
+        WeakReference<ClassLoader> loader = transformPluginModel();
+        for (int i = 0; i < 50 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        Assertions.assertNull(loader.get());
+    }
+
+    private WeakReference<ClassLoader> transformPluginModel() throws Exception {
+        ClassLoader plugin = new PluginLoader();
+        Class<?> type = plugin.loadClass(PluginModel.class.getName());
+        Assertions.assertNotSame(PluginModel.class, type);
+        Constructor<?> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        Object model = constructor.newInstance();
+        Field name = type.getDeclaredField("name");
+        name.setAccessible(true);
+        name.set(model, "plugin");
+
+        Assertions.assertNotNull(RuntimeTransformers.find(type));
+        Assertions.assertEquals(mapper.readTree("{\"name\": \"PLUGIN\", \"count\": 0, \"meta\": {\"plugin\": null}}"),
+                new JsonTransformer().transform(model));
+        return new WeakReference<>(plugin);
+    }
+
+    /**
+     * The index of a field in the plan. {@link Class#getDeclaredFields()} returns fields in no particular order,
+     * so tests look fields up by name rather than by position.
+     */
+    private static int fieldIndex(TransformPlan plan, String name) {
+        for (int i = 0; i < plan.fields().size(); i++) {
+            if (plan.fields().get(i).name().equals(name)) {
+                return i;
+            }
+        }
+        throw new AssertionError("No field " + name + " in " + plan.type().getName());
+    }
+
+    static class Cart {
+        @JsonToUpper
+        List<String> tags;
+        int[] quantities;
+        @JsonCleanPrefix(prefix = "sku_")
+        Map<String, String> skus;
+        @JsonToLower
+        Optional<String> note;
+        List<Line> lines;
+
+        static class Line {
+            @JsonCleanPrefix(prefix = "line_")
+            String id;
+            double price;
+        }
+    }
+
+    static class Shelf {
+        List<List<Cart.Line>> rows;
+        Map<String, List<Cart.Line>> aisles;
+    }
+
+    static class HomeAddress extends UserExample.AddressDto {
+        String floor;
+    }
+
+    static class PluginModel {
+        @JsonToUpper
+        String name;
+        int count;
+        @JsonNestedTransform(path = "meta.plugin")
+        Info info;
+
+        static class Info {
+            @JsonCleanPrefix(prefix = "v_")
+            String version;
+        }
+
+        static class ExtendedInfo extends Info {
+            String build;
+        }
+    }
+
+    /**
+     * Loads {@link PluginModel} and its nested classes itself, as the class loader of a plugin would.
+     */
+    static final class PluginLoader extends ClassLoader {
+
+        PluginLoader() {
+            super(JsonTransformerTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(PluginModel.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                        byte[] bytes = in.readAllBytes();
+                        loaded = defineClass(name, bytes, 0, bytes.length);
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+                return loaded;
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.micronaut.nimbus.filter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+class AdaptiveLimiterTest {
+
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    @Test
+    void requestsOverTheLimitAreQueuedThenRejected() {
+        AdaptiveLimiter limiter = limiter(2, 1, NEVER);
+
+        Assertions.assertTrue(limiter.acquire().isDone());
+        Assertions.assertTrue(limiter.acquire().isDone());
+        CompletableFuture<AdaptiveLimiter.Permit> queued = limiter.acquire();
+        Assertions.assertFalse(queued.isDone());
+        Assertions.assertNull(limiter.acquire());
+        Assertions.assertEquals(2, limiter.inFlight());
+        Assertions.assertEquals(1, limiter.queueLength());
+    }
+
+    @Test
+    void aReleasedPermitAdmitsTheFirstQueuedRequest() {
+        AdaptiveLimiter limiter = limiter(1, 2, NEVER);
+        AdaptiveLimiter.Permit running = limiter.acquire().join();
+        CompletableFuture<AdaptiveLimiter.Permit> first = limiter.acquire();
+        CompletableFuture<AdaptiveLimiter.Permit> second = limiter.acquire();
+
+        running.release(false);
+        // The fast release raised the limit to 2, so both waiting requests are admitted in order
+        Assertions.assertTrue(first.isDone());
+        Assertions.assertTrue(second.isDone());
+        Assertions.assertEquals(2, limiter.inFlight());
+        Assertions.assertEquals(0, limiter.queueLength());
+    }
+
+    @Test
+    void aQueuedRequestTimesOut() {
+        AdaptiveLimiter limiter = limiter(1, 1, Duration.ofMillis(20));
+        limiter.acquire().join();
+        CompletableFuture<AdaptiveLimiter.Permit> queued = limiter.acquire();
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, queued::get);
+        Assertions.assertInstanceOf(TimeoutException.class, e.getCause());
+        Assertions.assertEquals(0, limiter.queueLength());
+        Assertions.assertEquals(1, limiter.inFlight());
+    }
+
+    @Test
+    void aCancelledQueuedRequestGivesItsTurnToTheNext() {
+        AdaptiveLimiter limiter = limiter(1, 2, NEVER);
+        AdaptiveLimiter.Permit running = limiter.acquire().join();
+        CompletableFuture<AdaptiveLimiter.Permit> cancelled = limiter.acquire();
+        CompletableFuture<AdaptiveLimiter.Permit> next = limiter.acquire();
+
+        AdmissionFilter.cancel(cancelled);
+        Assertions.assertEquals(1, limiter.queueLength());
+        running.release(true);
+        Assertions.assertTrue(cancelled.isCancelled());
+        Assertions.assertTrue(next.isDone());
+        Assertions.assertEquals(1, limiter.inFlight());
+    }
+
+    @Test
+    void theLimitGrowsOnFastResponsesAndShrinksOnDroppedOnes() {
+        AdaptiveLimiter limiter = limiter(4, 0, NEVER);
+        AdaptiveLimiter.Permit first = limiter.acquire().join();
+        AdaptiveLimiter.Permit second = limiter.acquire().join();
+
+        // Half the limit is in use, so a fast response raises it
+        first.release(false);
+        Assertions.assertEquals(5.0, limiter.limit());
+        second.release(true);
+        Assertions.assertEquals(2.5, limiter.limit());
+        second.release(true);
+        Assertions.assertEquals(2.5, limiter.limit());
+        Assertions.assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void aPermitHandedOverAsTheClientWentAwayIsReleasedWithoutDropping() {
+        AdaptiveLimiter limiter = limiter(1, 1, NEVER);
+        AdaptiveLimiter.Permit running = limiter.acquire().join();
+        CompletableFuture<AdaptiveLimiter.Permit> admission = limiter.acquire();
+        running.release(false);
+        Assertions.assertTrue(admission.isDone());
+        Assertions.assertEquals(2.0, limiter.limit());
+
+        // The request is cancelled after handOver completed its future, before it could run
+        AdmissionFilter.cancel(admission);
+        Assertions.assertEquals(0, limiter.inFlight());
+        Assertions.assertEquals(3.0, limiter.limit());
+    }
+
+    private static AdaptiveLimiter limiter(int initialLimit, int queueSize, Duration queueTimeout) {
+        return new AdaptiveLimiter("/transformer/transform", initialLimit, 1, 8, NEVER, 0.5, queueSize,
+                queueTimeout, null);
+    }
+}
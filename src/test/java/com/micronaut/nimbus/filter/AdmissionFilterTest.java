@@ -0,0 +1,54 @@
+package com.micronaut.nimbus.filter;
+
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
+import io.micronaut.http.filter.ServerFilterChain;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+class AdmissionFilterTest {
+
+    private static final ServerFilterChain HANGING = request -> Mono.never();
+    private static final ServerFilterChain OK = request -> Mono.just(HttpResponse.ok());
+
+    @Test
+    void cancelledRequestsGiveTheirPermitsBack() {
+        // One permit: a leaked one would leave every later request queued
+        AdmissionFilter filter = filter(1, 4);
+        Disposable running = Mono.from(filter.doFilter(request(), HANGING)).subscribe();
+        Disposable queued = Mono.from(filter.doFilter(request(), OK)).subscribe();
+
+        queued.dispose();
+        running.dispose();
+        MutableHttpResponse<?> response = Mono.from(filter.doFilter(request(), OK)).block(Duration.ofSeconds(5));
+        Assertions.assertEquals(HttpStatus.OK, response.getStatus());
+    }
+
+    @Test
+    void requestsBeyondTheQueueAreShed() {
+        AdmissionFilter filter = filter(1, 0);
+        Disposable running = Mono.from(filter.doFilter(request(), HANGING)).subscribe();
+        try {
+            MutableHttpResponse<?> response = Mono.from(filter.doFilter(request(), OK)).block(Duration.ofSeconds(5));
+            Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatus());
+            Assertions.assertEquals("1", response.getHeaders().get("Retry-After"));
+        } finally {
+            running.dispose();
+        }
+    }
+
+    private static AdmissionFilter filter(int limit, int queueSize) {
+        return new AdmissionFilter(limit, limit, limit, Duration.ofHours(1), 0.5, queueSize, Duration.ofHours(1),
+                Duration.ofSeconds(1), limit, null);
+    }
+
+    private static HttpRequest<?> request() {
+        return HttpRequest.POST("/transformer/transform", "{}");
+    }
+}
@@ -0,0 +1,142 @@
+package com.micronaut.nimbus.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+
+class TransformMetricsTest {
+
+    @Test
+    void transformsAreRecordedPerEngineAndModel() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TransformMetrics metrics = new TransformMetrics(registry);
+
+        metrics.recordTransform("jackson", Order.class, metrics.start(), 40);
+        metrics.recordTransform("jackson", Order.class, metrics.start(), -1);
+        metrics.recordTransform("gson", Order.class, metrics.start(), 60);
+
+        Assertions.assertEquals(2, registry.get(TransformMetrics.TRANSFORM).tag("engine", "jackson").timer().count());
+        Assertions.assertEquals(1, registry.get(TransformMetrics.TRANSFORM).tag("engine", "gson").timer().count());
+        Assertions.assertEquals(1, registry.get(TransformMetrics.OUTPUT).tag("engine", "jackson").summary().count());
+        Assertions.assertEquals(40.0, registry.get(TransformMetrics.OUTPUT).tag("engine", "jackson").summary()
+                .totalAmount());
+    }
+
+    @Test
+    void theModelShapeIsOneGaugePerModel() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TransformMetrics metrics = new TransformMetrics(registry);
+
+        metrics.recordTransform("jackson", Order.class, metrics.start(), 40);
+        metrics.recordTransform("gson", Order.class, metrics.start(), 40);
+
+        // Order has two fields and its Customer another two
+        Assertions.assertEquals(1, registry.find(TransformMetrics.FIELDS).gauges().size());
+        Assertions.assertEquals(4.0, registry.get(TransformMetrics.FIELDS).tag("model", Order.class.getName())
+                .gauge().value());
+        Assertions.assertEquals(2.0, registry.get(TransformMetrics.DEPTH).tag("model", Order.class.getName())
+                .gauge().value());
+    }
+
+    @Test
+    void errorsAreCountedByExceptionType() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TransformMetrics metrics = new TransformMetrics(registry);
+
+        metrics.recordError("jackson", Order.class, new IllegalStateException());
+        metrics.recordError("jackson", Order.class, new IllegalStateException());
+
+        Assertions.assertEquals(2.0, registry.get(TransformMetrics.ERRORS)
+                .tag("exception", "IllegalStateException").counter().count());
+    }
+
+    @Test
+    void countingStreamsReportTheBytesWritten() throws Exception {
+        TransformMetrics metrics = new TransformMetrics(new SimpleMeterRegistry());
+        OutputStream out = metrics.counting(new ByteArrayOutputStream());
+        out.write(new byte[10], 2, 5);
+        out.write('x');
+
+        Assertions.assertEquals(6, TransformMetrics.written(out));
+    }
+
+    @Test
+    void disabledMetricsRecordNothing() {
+        TransformMetrics metrics = new TransformMetrics(null);
+        OutputStream out = new ByteArrayOutputStream();
+
+        Assertions.assertFalse(metrics.enabled());
+        Assertions.assertEquals(0, metrics.start());
+        Assertions.assertSame(out, metrics.counting(out));
+        Assertions.assertEquals(-1, TransformMetrics.written(out));
+        metrics.recordTransform("jackson", Order.class, 0, 40);
+        metrics.recordError("jackson", Order.class, new IllegalStateException());
+    }
+
+    @Test
+    void metricsDoNotKeepAModelLoaded() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TransformMetrics metrics = new TransformMetrics(registry);
+
+        WeakReference<ClassLoader> loader = recordPluginOrder(metrics);
+        for (int i = 0; i < 50 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        Assertions.assertNull(loader.get());
+        Assertions.assertEquals(1, registry.get(TransformMetrics.TRANSFORM).timer().count());
+    }
+
+    private static WeakReference<ClassLoader> recordPluginOrder(TransformMetrics metrics) throws Exception {
+        ClassLoader plugin = new PluginLoader();
+        Class<?> type = plugin.loadClass(Order.class.getName());
+        Assertions.assertNotSame(Order.class, type);
+        metrics.recordTransform("jackson", type, metrics.start(), 40);
+        return new WeakReference<>(plugin);
+    }
+
+    static class Order {
+        String id;
+        Customer customer;
+
+        static class Customer {
+            String name;
+            String email;
+        }
+    }
+
+    /**
+     * Loads {@link Order} and its nested classes itself, as the class loader of a plugin would.
+     */
+    static final class PluginLoader extends ClassLoader {
+
+        PluginLoader() {
+            super(TransformMetricsTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(Order.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                        byte[] bytes = in.readAllBytes();
+                        loaded = defineClass(name, bytes, 0, bytes.length);
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+                return loaded;
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.micronaut.nimbus.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micronaut.nimbus.engine.JsonTransformer;
+import com.micronaut.nimbus.engine.StreamingJsonTransformer;
+import com.micronaut.nimbus.engine.Transformer;
+import com.micronaut.nimbus.metrics.TransformMetrics;
+import com.micronaut.nimbus.models.transformer.UserExample;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class BatchTransformServiceTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final StreamingJsonTransformer transformer = new StreamingJsonTransformer(new JsonTransformer());
+
+    @Test
+    void ndjsonRecordsAreWrittenInInputOrder() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            body.append("{\"userId\": \"user_").append(i).append("\", \"name\": \"user ").append(i).append("\"}\n");
+        }
+        List<JsonNode> lines = transform(new BatchTransformService(4, 8, new TransformMetrics(null)), body.toString());
+
+        Assertions.assertEquals(200, lines.size());
+        for (int i = 0; i < 200; i++) {
+            Assertions.assertEquals(String.valueOf(i), lines.get(i).get("userId").asText());
+            Assertions.assertEquals("USER " + i, lines.get(i).get("name").asText());
+        }
+    }
+
+    @Test
+    void aJsonArrayIsUnwrapped() throws Exception {
+        List<JsonNode> lines = transform(new BatchTransformService(2, 0, new TransformMetrics(null)), """
+                [{"userId": "user_1"}, {"userId": "user_2"}]
+                """);
+        Assertions.assertEquals(List.of("1", "2"), lines.stream().map(line -> line.get("userId").asText()).toList());
+    }
+
+    @Test
+    void aFailingRecordEndsTheStreamWithAnErrorLine() throws Exception {
+        List<JsonNode> lines = transform(new BatchTransformService(2, 0, new TransformMetrics(null)), """
+                {"userId": "user_1"}
+                {"userId": "user_2"}
+                {"userId": 
+                {"userId": "user_4"}
+                """);
+        Assertions.assertEquals(3, lines.size());
+        Assertions.assertEquals("1", lines.get(0).get("userId").asText());
+        Assertions.assertEquals("2", lines.get(1).get("userId").asText());
+        Assertions.assertTrue(lines.get(2).has("error"), lines.get(2).toString());
+    }
+
+    @Test
+    void aRecordFailingToTransformEndsTheStreamAfterTheRecordsBeforeIt() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            body.append("{\"userId\": \"user_").append(i).append("\"}\n");
+        }
+        Transformer failing = new Transformer() {
+            @Override
+            public String id() {
+                return "failing";
+            }
+
+            @Override
+            public Object transform(Object input) throws IllegalAccessException {
+                return transformer.transform(input);
+            }
+
+            @Override
+            public void write(Object input, OutputStream out) throws IOException, IllegalAccessException {
+                if (((UserExample) input).getUserId().equals("user_20")) {
+                    throw new IllegalStateException("record 20");
+                }
+                transformer.write(input, out);
+            }
+        };
+        List<JsonNode> lines = transform(new BatchTransformService(4, 8, new TransformMetrics(null)),
+                body.toString(), failing);
+
+        Assertions.assertEquals(21, lines.size());
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals(String.valueOf(i), lines.get(i).get("userId").asText());
+        }
+        Assertions.assertEquals("record 20", lines.get(20).get("error").asText());
+    }
+
+    private List<JsonNode> transform(BatchTransformService service, String body) throws IOException {
+        return transform(service, body, transformer);
+    }
+
+    private List<JsonNode> transform(BatchTransformService service, String body, Transformer transformer)
+            throws IOException {
+        try {
+            List<byte[]> chunks = Flux.from(service.transform(UserExample.class,
+                    new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), transformer))
+                    .collectList()
+                    .block();
+            List<JsonNode> lines = new ArrayList<>();
+            for (byte[] chunk : chunks) {
+                Assertions.assertEquals('\n', chunk[chunk.length - 1]);
+                lines.add(mapper.readTree(chunk));
+            }
+            return lines;
+        } finally {
+            service.shutdown();
+        }
+    }
+}
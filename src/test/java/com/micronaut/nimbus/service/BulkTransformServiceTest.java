@@ -0,0 +1,110 @@
+package com.micronaut.nimbus.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micronaut.nimbus.engine.JsonTransformer;
+import com.micronaut.nimbus.engine.StreamingJsonTransformer;
+import com.micronaut.nimbus.metrics.TransformMetrics;
+import com.micronaut.nimbus.models.transformer.BulkTransformResult;
+import com.micronaut.nimbus.models.transformer.UserExample;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+class BulkTransformServiceTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final StreamingJsonTransformer transformer = new StreamingJsonTransformer(new JsonTransformer());
+
+    @Test
+    void theLastRecordNeedsNoTrailingNewline() throws Exception {
+        List<String> ids = transform(service(1024, 1), "{\"userId\": \"user_1\"}\n{\"userId\": \"user_2\"}");
+        Assertions.assertEquals(List.of("1", "2"), ids);
+    }
+
+    @Test
+    void aRecordEndingOnAChunkBoundaryStaysInItsChunk() throws Exception {
+        String record = "{\"userId\": \"user_1\"}\n";
+        BulkTransformService service = service(record.length(), 1);
+        Path input = write(record + record.replace('1', '2') + record.replace('1', '3'));
+        Path output = Files.createTempFile("bulk", ".ndjson");
+        try {
+            BulkTransformResult result = service.transform(UserExample.class, input, output, transformer);
+            Assertions.assertEquals(3, result.getChunks());
+            Assertions.assertEquals(3, result.getRecords());
+            Assertions.assertEquals(List.of("1", "2", "3"), ids(output));
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    void aRecordLongerThanTheChunkSizeIsRejected() throws Exception {
+        IOException e = Assertions.assertThrows(IOException.class, () -> transform(service(16, 1),
+                "{\"userId\": \"user_1\"}\n{\"userId\": \"user_2\"}\n"));
+        Assertions.assertTrue(e.getMessage().contains("longer than nimbus.bulk.chunk-size"), e.getMessage());
+    }
+
+    @Test
+    void anEmptyFileGivesAnEmptyOutput() throws Exception {
+        Path input = write("");
+        Path output = Files.createTempFile("bulk", ".ndjson");
+        try {
+            BulkTransformResult result = service(1024, 2).transform(UserExample.class, input, output, transformer);
+            Assertions.assertEquals(0, result.getRecords());
+            Assertions.assertEquals(0, result.getChunks());
+            Assertions.assertEquals(0, Files.size(output));
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    void chunksTransformedInParallelAreWrittenInInputOrder() throws Exception {
+        StringBuilder body = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            body.append("{\"userId\": \"user_").append(i).append("\", \"name\": \"user ").append(i).append("\"}\n");
+            if (i % 100 == 0) {
+                body.append('\n');
+            }
+            expected.add(String.valueOf(i));
+        }
+        Assertions.assertEquals(expected, transform(service(512, 4), body.toString()));
+    }
+
+    private BulkTransformService service(int chunkSize, int parallelism) {
+        return new BulkTransformService(chunkSize, parallelism, 0, new TransformMetrics(null));
+    }
+
+    private List<String> transform(BulkTransformService service, String body) throws Exception {
+        Path input = write(body);
+        Path output = Files.createTempFile("bulk", ".ndjson");
+        try {
+            service.transform(UserExample.class, input, output, transformer);
+            return ids(output);
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    private static Path write(String body) throws IOException {
+        return Files.writeString(Files.createTempFile("bulk", ".ndjson"), body, StandardCharsets.UTF_8);
+    }
+
+    private List<String> ids(Path output) throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (String line : Files.readAllLines(output, StandardCharsets.UTF_8)) {
+            ids.add(mapper.readTree(line).get("userId").asText());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,74 @@
+package com.micronaut.nimbus.service;
+
+import com.micronaut.nimbus.engine.WireFormat;
+import com.micronaut.nimbus.models.transformer.CacheStatsResult;
+import com.micronaut.nimbus.models.transformer.UserExample;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+class TransformResultCacheTest {
+
+    private static final byte[] BODY = "{\"userId\": \"user_1\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RESULT = "{\"userId\":\"1\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void hitsAndMissesAreCounted() {
+        TransformResultCache cache = new TransformResultCache(true, 1 << 20);
+        Assertions.assertNull(cache.get(UserExample.class, "jackson", WireFormat.JSON, WireFormat.JSON, BODY));
+        cache.put(UserExample.class, "jackson", WireFormat.JSON, WireFormat.JSON, BODY, RESULT);
+
+        // An equal body in another array is the same key
+        Assertions.assertSame(RESULT, cache.get(UserExample.class, "jackson", WireFormat.JSON, WireFormat.JSON,
+                BODY.clone()));
+        CacheStatsResult stats = cache.stats();
+        Assertions.assertTrue(stats.isEnabled());
+        Assertions.assertEquals(1, stats.getHits());
+        Assertions.assertEquals(1, stats.getMisses());
+        Assertions.assertEquals(1, stats.getEntries());
+        Assertions.assertEquals(0.5, stats.getHitRate());
+    }
+
+    @Test
+    void keysAreSeparatedByEngineAndWireFormat() {
+        TransformResultCache cache = new TransformResultCache(true, 1 << 20);
+        cache.put(UserExample.class, "jackson", WireFormat.JSON, WireFormat.JSON, BODY, RESULT);
+
+        Assertions.assertNull(cache.get(UserExample.class, "gson", WireFormat.JSON, WireFormat.JSON, BODY));
+        Assertions.assertNull(cache.get(UserExample.class, "jackson", WireFormat.CBOR, WireFormat.JSON, BODY));
+        Assertions.assertNull(cache.get(UserExample.class, "jackson", WireFormat.JSON, WireFormat.SMILE, BODY));
+        Assertions.assertNull(cache.get(Object.class, "jackson", WireFormat.JSON, WireFormat.JSON, BODY));
+        Assertions.assertEquals(4, cache.stats().getMisses());
+    }
+
+    @Test
+    void entriesAreEvictedByByteWeight() {
+        long maxBytes = 16 * 1024;
+        TransformResultCache cache = new TransformResultCache(true, maxBytes);
+        byte[] result = new byte[1024];
+        for (int i = 0; i < 64; i++) {
+            byte[] body = ("{\"userId\": \"user_" + i + "\"}").getBytes(StandardCharsets.UTF_8);
+            cache.put(UserExample.class, "jackson", WireFormat.JSON, WireFormat.JSON, body, result);
+        }
+
+        CacheStatsResult stats = cache.stats();
+        Assertions.assertTrue(stats.getWeightedBytes() <= maxBytes, stats.toString());
+        Assertions.assertTrue(stats.getEntries() < 64, stats.toString());
+        Assertions.assertEquals(64 - stats.getEntries(), stats.getEvictions(), stats.toString());
+        Assertions.assertTrue(stats.getEvictedBytes() >= stats.getEvictions() * result.length, stats.toString());
+    }
+
+    @Test
+    void aDisabledCacheStoresNothing() {
+        TransformResultCache cache = new TransformResultCache(false, 1 << 20);
+        cache.put(UserExample.class, "jackson", WireFormat.JSON, WireFormat.JSON, BODY, RESULT);
+
+        Assertions.assertFalse(cache.enabled());
+        Assertions.assertNull(cache.get(UserExample.class, "jackson", WireFormat.JSON, WireFormat.JSON, BODY));
+        CacheStatsResult stats = cache.stats();
+        Assertions.assertFalse(stats.isEnabled());
+        Assertions.assertEquals(0, stats.getMisses());
+        Assertions.assertEquals(0, stats.getEntries());
+    }
+}
@@ -0,0 +1,82 @@
+package com.micronaut.nimbus.warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micronaut.nimbus.engine.JsonTransformer;
+import com.micronaut.nimbus.engine.StreamingJsonTransformer;
+import com.micronaut.nimbus.engine.TokenRewriteTransformer;
+import com.micronaut.nimbus.engine.Transformer;
+import com.micronaut.nimbus.engine.TransformerRegistry;
+import com.micronaut.nimbus.models.transformer.UserExample;
+import io.micronaut.core.beans.BeanIntrospector;
+import io.micronaut.health.HealthStatus;
+import io.micronaut.management.health.indicator.HealthResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+class StartupWarmupTest {
+
+    private final StreamingJsonTransformer streaming = new StreamingJsonTransformer(new JsonTransformer());
+
+    @Test
+    void readinessIsDownUntilTheWarmupIsDone() {
+        StartupWarmup warmup = warmup(streaming);
+        WarmupReadinessIndicator indicator = new WarmupReadinessIndicator(warmup);
+
+        HealthResult before = Mono.from(indicator.getResult()).block();
+        Assertions.assertEquals(HealthStatus.DOWN, before.getStatus());
+        Assertions.assertEquals("PENDING", ((Map<?, ?>) before.getDetails()).get("state"));
+
+        warmup.warmUp();
+
+        HealthResult after = Mono.from(indicator.getResult()).block();
+        Assertions.assertEquals(HealthStatus.UP, after.getStatus());
+        Map<?, ?> details = (Map<?, ?>) after.getDetails();
+        Assertions.assertEquals("DONE", details.get("state"));
+        Assertions.assertTrue((Integer) details.get("models") > 0, details.toString());
+    }
+
+    @Test
+    void aFailedWarmupReportsReady() {
+        Transformer failing = new JsonTransformer() {
+            @Override
+            public void write(Object input, OutputStream out) {
+                throw new IllegalStateException("write failed");
+            }
+        };
+        StartupWarmup warmup = warmup(failing);
+        WarmupReadinessIndicator indicator = new WarmupReadinessIndicator(warmup);
+
+        warmup.warmUp();
+
+        HealthResult result = Mono.from(indicator.getResult()).block();
+        Assertions.assertEquals(HealthStatus.UP, result.getStatus());
+        Assertions.assertEquals("FAILED", ((Map<?, ?>) result.getDetails()).get("state"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void syntheticPayloadSetsLeavesAndNestedModels() throws Exception {
+        Class<Object> type = (Class<Object>) (Class<?>) UserExample.class;
+        byte[] json = warmup(streaming).json(BeanIntrospector.SHARED.getIntrospection(type));
+
+        Assertions.assertNotNull(json);
+        JsonNode user = new ObjectMapper().readTree(json);
+        Assertions.assertEquals("userId_warmup", user.path("userId").asText());
+        Assertions.assertEquals("street_warmup", user.path("homeAddress").path("street").asText());
+        Assertions.assertEquals("city_warmup", user.path("officeAddress").path("city").asText());
+        Assertions.assertEquals(1.5, user.path("orders").path("totalAmount").asDouble());
+        Assertions.assertEquals(1, user.path("orders").path("items").path("quantity").asInt());
+    }
+
+    private StartupWarmup warmup(Transformer transformer) {
+        TransformerRegistry registry = new TransformerRegistry(List.of(transformer), transformer.id());
+        return new StartupWarmup(registry, new TokenRewriteTransformer(streaming),
+                io.micronaut.serde.ObjectMapper.getDefault(), 2, "", false);
+    }
+}
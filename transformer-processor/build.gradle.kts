@@ -0,0 +1,15 @@
+plugins {
+    id("java-library")
+}
+
+version = "0.1"
+group = "com.micronaut.nimbus"
+
+repositories {
+    mavenCentral()
+}
+
+java {
+    sourceCompatibility = JavaVersion.toVersion("21")
+    targetCompatibility = JavaVersion.toVersion("21")
+}
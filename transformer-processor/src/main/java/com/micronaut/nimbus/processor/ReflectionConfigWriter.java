@@ -0,0 +1,97 @@
+package com.micronaut.nimbus.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the models the reflective engines may read and writes them as GraalVM reflection metadata, so
+ * that a native image keeps their fields, getters and constructors. Besides every annotated model, this
+ * covers their superclasses and the declared types of their fields, of type arguments and of array
+ * components, recursively, except for JDK types.
+ */
+class ReflectionConfigWriter {
+
+    static final String CONFIG_FILE = "META-INF/native-image/com.micronaut.nimbus/micronaut-nimbus/reflect-config.json";
+
+    private final ProcessingEnvironment env;
+    private final Map<String, TypeElement> models = new TreeMap<>();
+
+    ReflectionConfigWriter(ProcessingEnvironment env) {
+        this.env = env;
+    }
+
+    void add(TypeElement model) {
+        String binaryName = env.getElementUtils().getBinaryName(model).toString();
+        if (models.putIfAbsent(binaryName, model) != null) {
+            return;
+        }
+        addType(model.getSuperclass());
+        for (VariableElement field : ElementFilter.fieldsIn(model.getEnclosedElements())) {
+            if (!field.getModifiers().contains(Modifier.STATIC)) {
+                addType(field.asType());
+            }
+        }
+    }
+
+    private void addType(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            addType(((ArrayType) type).getComponentType());
+        } else if (type.getKind() == TypeKind.DECLARED) {
+            DeclaredType declared = (DeclaredType) type;
+            for (TypeMirror argument : declared.getTypeArguments()) {
+                addType(argument);
+            }
+            TypeElement element = (TypeElement) declared.asElement();
+            String name = element.getQualifiedName().toString();
+            if ((element.getKind() == ElementKind.CLASS || element.getKind() == ElementKind.RECORD)
+                    && !name.startsWith("java.") && !name.startsWith("javax.")) {
+                add(element);
+            }
+        } else if (type.getKind() == TypeKind.WILDCARD) {
+            TypeMirror bound = ((WildcardType) type).getExtendsBound();
+            if (bound != null) {
+                addType(bound);
+            }
+        }
+    }
+
+    void write() {
+        if (models.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = env.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", CONFIG_FILE,
+                    models.values().toArray(new Element[0]));
+            try (Writer out = file.openWriter()) {
+                out.write("[\n");
+                int remaining = models.size();
+                for (String name : models.keySet()) {
+                    out.write("  {\"name\": \"" + name + "\", \"allDeclaredFields\": true, "
+                            + "\"allDeclaredMethods\": true, \"allDeclaredConstructors\": true}");
+                    out.write(--remaining > 0 ? ",\n" : "\n");
+                }
+                out.write("]\n");
+            }
+        } catch (IOException e) {
+            env.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write " + CONFIG_FILE + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.micronaut.nimbus.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Generates a {@code GeneratedTransformer} for every model that declares a field carrying one of the
+ * {@code com.micronaut.nimbus.annotations} annotations, and registers it as a service so that
+ * {@code JsonTransformer} picks it up at runtime. Models the generator cannot cover are reported as a
+ * note and keep going through the reflective engines. Every model, generated or not, is also listed in
+ * the GraalVM reflection metadata written by {@link ReflectionConfigWriter}.
+ */
+@SupportedAnnotationTypes({
+        TransformerProcessor.CLEAN_PREFIX,
+        TransformerProcessor.NESTED_TRANSFORM,
+        TransformerProcessor.RENAME,
+        TransformerProcessor.TO_LOWER,
+        TransformerProcessor.TO_UPPER
+})
+public class TransformerProcessor extends AbstractProcessor {
+
+    static final String CLEAN_PREFIX = "com.micronaut.nimbus.annotations.JsonCleanPrefix";
+    static final String NESTED_TRANSFORM = "com.micronaut.nimbus.annotations.JsonNestedTransform";
+    static final String RENAME = "com.micronaut.nimbus.annotations.JsonRename";
+    static final String TO_LOWER = "com.micronaut.nimbus.annotations.JsonToLower";
+    static final String TO_UPPER = "com.micronaut.nimbus.annotations.JsonToUpper";
+
+    static final String SERVICE_FILE = "META-INF/services/com.micronaut.nimbus.engine.GeneratedTransformer";
+
+    private final Map<String, Element> generated = new TreeMap<>();
+    private ReflectionConfigWriter reflectionConfig;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.reflectionConfig = new ReflectionConfigWriter(processingEnv);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeServiceFile();
+            reflectionConfig.write();
+            return false;
+        }
+
+        Set<TypeElement> models = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.FIELD) {
+                    models.add((TypeElement) element.getEnclosingElement());
+                }
+            }
+        }
+
+        for (TypeElement model : models) {
+            generate(model);
+            reflectionConfig.add(model);
+        }
+        return false;
+    }
+
+    private void generate(TypeElement model) {
+        if (model.getModifiers().contains(Modifier.PRIVATE) || model.getModifiers().contains(Modifier.ABSTRACT)
+                || !model.getTypeParameters().isEmpty()) {
+            note(model, "is private, abstract or generic");
+            return;
+        }
+
+        TransformerWriter writer = new TransformerWriter(processingEnv, model);
+        String source;
+        try {
+            source = writer.write();
+        } catch (UnsupportedModelException e) {
+            note(model, e.getMessage());
+            return;
+        }
+
+        String className = writer.qualifiedClassName();
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(className, model);
+            try (Writer out = file.openWriter()) {
+                out.write(source);
+            }
+            generated.put(className, model);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write transformer " + className + ": " + e.getMessage(), model);
+        }
+    }
+
+    private void writeServiceFile() {
+        if (generated.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE,
+                    generated.values().toArray(new Element[0]));
+            try (Writer out = file.openWriter()) {
+                for (String className : generated.keySet()) {
+                    out.write(className);
+                    out.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write " + SERVICE_FILE + ": " + e.getMessage());
+        }
+    }
+
+    private void note(TypeElement model, String reason) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                "No transformer generated for " + model.getQualifiedName() + " (" + reason
+                        + "), it will be transformed reflectively", model);
+    }
+}
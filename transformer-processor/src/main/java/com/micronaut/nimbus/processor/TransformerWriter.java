@@ -0,0 +1,377 @@
+package com.micronaut.nimbus.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the source of one generated transformer. Nested models are inlined into a single
+ * {@code transform} method, so every output key is a constant and every value is read through a plain
+ * getter. Parent objects are resolved lazily, once per transform, and kept in locals. Collections, arrays
+ * and maps are handed to {@code TransformSupport.valueNode} with their value rules. A nested model of a
+ * subclass of its declared type hands the whole document to {@code TransformSupport.transformTree}.
+ */
+class TransformerWriter {
+
+    static final String CLASS_SUFFIX = "$NimbusTransformer";
+
+    private static final Set<String> LEAF_TYPES = Set.of(
+            "java.lang.String", "java.lang.Boolean", "java.lang.Short", "java.lang.Integer", "java.lang.Long",
+            "java.lang.Float", "java.lang.Double", "java.math.BigDecimal", "java.math.BigInteger");
+
+    private final ProcessingEnvironment env;
+    private final TypeElement model;
+    private final String packageName;
+    private final StringBuilder body = new StringBuilder();
+    private final Map<String, String> parentNodes = new LinkedHashMap<>();
+    private final Deque<TypeElement> visiting = new ArrayDeque<>();
+    private int locals;
+
+    TransformerWriter(ProcessingEnvironment env, TypeElement model) {
+        this.env = env;
+        this.model = model;
+        this.packageName = env.getElementUtils().getPackageOf(model).getQualifiedName().toString();
+    }
+
+    String qualifiedClassName() {
+        return packageName.isEmpty() ? simpleClassName() : packageName + '.' + simpleClassName();
+    }
+
+    private String simpleClassName() {
+        String binaryName = env.getElementUtils().getBinaryName(model).toString();
+        return binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1) + CLASS_SUFFIX;
+    }
+
+    String write() {
+        writeFields(model, "input", "", 2);
+
+        String modelType = model.getQualifiedName().toString();
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import com.fasterxml.jackson.databind.node.JsonNodeFactory;\n")
+                .append("import com.fasterxml.jackson.databind.node.ObjectNode;\n")
+                .append("import com.micronaut.nimbus.engine.GeneratedTransformer;\n")
+                .append("import com.micronaut.nimbus.engine.TransformSupport;\n\n")
+                .append("@javax.annotation.processing.Generated(\"").append(TransformerProcessor.class.getName())
+                .append("\")\n")
+                .append("public final class ").append(simpleClassName())
+                .append(" implements GeneratedTransformer<").append(modelType).append("> {\n\n");
+
+        int index = 0;
+        for (String path : parentNodes.keySet()) {
+            source.append("    private static final String[] P").append(index++).append(" = {");
+            String[] segments = path.split("\\.");
+            for (int i = 0; i < segments.length; i++) {
+                source.append(i == 0 ? "" : ", ").append(literal(segments[i]));
+            }
+            source.append("};\n");
+        }
+        if (!parentNodes.isEmpty()) {
+            source.append('\n');
+        }
+
+        source.append("    @Override\n")
+                .append("    public Class<").append(modelType).append("> type() {\n")
+                .append("        return ").append(modelType).append(".class;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public ObjectNode transform(").append(modelType)
+                .append(" input) throws IllegalAccessException {\n")
+                .append("        ObjectNode root = JsonNodeFactory.instance.objectNode();\n");
+        for (String node : parentNodes.values()) {
+            source.append("        ObjectNode ").append(node).append(" = null;\n");
+        }
+        source.append(body)
+                .append("        return root;\n")
+                .append("    }\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    private void writeFields(TypeElement type, String target, String parentPath, int indent) {
+        if (visiting.contains(type)) {
+            throw new UnsupportedModelException(type.getQualifiedName() + " is recursive");
+        }
+        visiting.push(type);
+        for (VariableElement field : instanceFields(type)) {
+            writeField((TypeElement) field.getEnclosingElement(), field, target, parentPath, indent);
+        }
+        visiting.pop();
+    }
+
+    /**
+     * The instance fields of the class and of its superclasses below the JDK ones, superclasses first, as the
+     * reflective plans read them.
+     */
+    private List<VariableElement> instanceFields(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        if (type.getSuperclass().getKind() == TypeKind.DECLARED) {
+            TypeElement superclass = (TypeElement) ((DeclaredType) type.getSuperclass()).asElement();
+            if (!superclass.getQualifiedName().toString().startsWith("java.")) {
+                fields.addAll(instanceFields(superclass));
+            }
+        }
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (!field.getModifiers().contains(Modifier.STATIC)) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private void writeField(TypeElement owner, VariableElement field, String target, String parentPath, int indent) {
+        String name = field.getSimpleName().toString();
+
+        String path = join(parentPath, name);
+        String nestedPath = annotationValue(field, TransformerProcessor.NESTED_TRANSFORM, "path");
+        if (nestedPath != null) {
+            path = nestedPath;
+        }
+        String rename = annotationValue(field, TransformerProcessor.RENAME, "name");
+        if (rename != null) {
+            path = join(parentPath, rename);
+        }
+
+        String read = accessor(owner, field, target);
+        TypeMirror type = field.asType();
+        String[] segments = path.split("\\.");
+        String parent = parentNode(Arrays.copyOf(segments, segments.length - 1));
+        String key = literal(segments[segments.length - 1]);
+
+        if (isLeaf(type)) {
+            line(indent, parent + ".put(" + key + ", " + leafValue(field, type, read) + ");");
+            return;
+        }
+        if (isContainer(field, type)) {
+            line(indent, parent + ".set(" + key + ", TransformSupport.valueNode(" + read + ", " + valueRules(field) + "));");
+            return;
+        }
+
+        TypeElement nested = nestedType(field, type);
+        String local = "v" + locals++;
+        line(indent, "var " + local + " = " + read + ";");
+        line(indent, "if (" + local + " == null) {");
+        line(indent + 1, parent + ".putNull(" + key + ");");
+        line(indent, "} else if (" + local + ".getClass() != " + nested.getQualifiedName() + ".class) {");
+        // A subclass has fields of its own: the whole document is transformed from the plans instead
+        line(indent + 1, "return TransformSupport.transformTree(input);");
+        line(indent, "} else {");
+        writeFields(nested, local, path, indent + 1);
+        line(indent, "}");
+    }
+
+    private String leafValue(VariableElement field, TypeMirror type, String read) {
+        if (type.getKind() == TypeKind.BYTE) {
+            return "(int) " + read;
+        }
+        return isString(type) ? stringRules(field, read) : read;
+    }
+
+    /**
+     * The value rules of a collection, array, map or {@code Optional} field, applied to each string element.
+     */
+    private String valueRules(VariableElement field) {
+        String rules = stringRules(field, "v");
+        return rules.equals("v") ? "java.util.function.UnaryOperator.identity()" : "v -> " + rules;
+    }
+
+    private String stringRules(VariableElement field, String value) {
+        String prefix = annotationValue(field, TransformerProcessor.CLEAN_PREFIX, "prefix");
+        if (prefix != null) {
+            value = "TransformSupport.cleanPrefix(" + value + ", " + literal(prefix) + ")";
+        }
+        if (hasAnnotation(field, TransformerProcessor.TO_UPPER)) {
+            value = "TransformSupport.toUpperCase(" + value + ")";
+        } else if (hasAnnotation(field, TransformerProcessor.TO_LOWER)) {
+            value = "TransformSupport.toLowerCase(" + value + ")";
+        }
+        return value;
+    }
+
+    private boolean isLeaf(TypeMirror type) {
+        return switch (type.getKind()) {
+            case BOOLEAN, BYTE, SHORT, INT, LONG, FLOAT, DOUBLE -> true;
+            case DECLARED -> LEAF_TYPES.contains(qualifiedName(type));
+            default -> false;
+        };
+    }
+
+    /**
+     * Collections, arrays and maps, and {@code Optional}s of leaf or container values, are written through
+     * {@code TransformSupport.valueNode}. An {@code Optional} model is flattened into its parent by the
+     * reflective engines, which the generated code does not do.
+     */
+    private boolean isContainer(VariableElement field, TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return true;
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        if ("java.util.Optional".equals(qualifiedName(type))) {
+            List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+            if (arguments.isEmpty() || !(isLeaf(arguments.get(0)) || isContainer(field, arguments.get(0)))) {
+                throw unsupported(field, "is an Optional of a model");
+            }
+            return true;
+        }
+        return isSubtype(type, "java.util.Collection") || isSubtype(type, "java.util.Map");
+    }
+
+    private boolean isSubtype(TypeMirror type, String supertype) {
+        TypeElement element = env.getElementUtils().getTypeElement(supertype);
+        return element != null && env.getTypeUtils().isAssignable(
+                env.getTypeUtils().erasure(type), env.getTypeUtils().erasure(element.asType()));
+    }
+
+    private boolean isString(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED && "java.lang.String".equals(qualifiedName(type));
+    }
+
+    private TypeElement nestedType(VariableElement field, TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            throw unsupported(field, "has type " + type);
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        String name = element.getQualifiedName().toString();
+        if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)
+                || !element.getTypeParameters().isEmpty() || name.startsWith("java.") || name.startsWith("javax.")) {
+            throw unsupported(field, "has type " + type + " which is not a concrete model class");
+        }
+        if (!isAccessible(element)) {
+            throw unsupported(field, "has type " + type + " which is not accessible from " + packageName);
+        }
+        return element;
+    }
+
+    private String accessor(TypeElement owner, VariableElement field, String target) {
+        String name = field.getSimpleName().toString();
+        if (isAccessible(field)) {
+            return target + '.' + name;
+        }
+
+        String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        Set<String> candidates = field.asType().getKind() == TypeKind.BOOLEAN
+                ? Set.of("get" + suffix, "is" + suffix)
+                : Set.of("get" + suffix);
+        for (ExecutableElement method : ElementFilter.methodsIn(owner.getEnclosedElements())) {
+            if (candidates.contains(method.getSimpleName().toString())
+                    && method.getParameters().isEmpty()
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && isAccessible(method)
+                    && env.getTypeUtils().isSameType(method.getReturnType(), field.asType())) {
+                return target + '.' + method.getSimpleName() + "()";
+            }
+        }
+        throw unsupported(field, "is private and has no accessible getter");
+    }
+
+    private boolean isAccessible(Element element) {
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        PackageElement elementPackage = env.getElementUtils().getPackageOf(element);
+        return elementPackage.getQualifiedName().contentEquals(packageName);
+    }
+
+    private String parentNode(String[] segments) {
+        if (segments.length == 0) {
+            return "root";
+        }
+        String path = String.join(".", segments);
+        String node = parentNodes.computeIfAbsent(path, p -> "n" + parentNodes.size());
+        String constant = "P" + node.substring(1);
+        return "(" + node + " != null ? " + node + " : (" + node + " = TransformSupport.objectAt(root, " + constant + ")))";
+    }
+
+    private void line(int indent, String code) {
+        body.append("    ".repeat(indent)).append(code).append('\n');
+    }
+
+    private UnsupportedModelException unsupported(VariableElement field, String reason) {
+        return new UnsupportedModelException("field " + field.getEnclosingElement().getSimpleName() + '.'
+                + field.getSimpleName() + ' ' + reason);
+    }
+
+    private static String join(String parentPath, String name) {
+        return parentPath.isEmpty() ? name : parentPath + '.' + name;
+    }
+
+    private static String qualifiedName(TypeMirror type) {
+        return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+    }
+
+    private static boolean hasAnnotation(Element element, String annotation) {
+        return findAnnotation(element, annotation) != null;
+    }
+
+    private static String annotationValue(Element element, String annotation, String member) {
+        AnnotationMirror mirror = findAnnotation(element, annotation);
+        if (mirror == null) {
+            return null;
+        }
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(member)) {
+                return (String) entry.getValue().getValue();
+            }
+        }
+        // Only JsonNestedTransform.path() has a default, and it is the empty string
+        return "";
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                case '\t' -> literal.append("\\t");
+                default -> {
+                    if (c < 0x20 || c > 0x7e) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+}
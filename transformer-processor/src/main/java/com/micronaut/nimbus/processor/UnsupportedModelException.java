@@ -0,0 +1,12 @@
+package com.micronaut.nimbus.processor;
+
+/**
+ * Raised while generating a transformer when the model uses a shape the generator does not handle.
+ * The model is then left to the reflective engines.
+ */
+class UnsupportedModelException extends RuntimeException {
+
+    UnsupportedModelException(String message) {
+        super(message, null, false, false);
+    }
+}